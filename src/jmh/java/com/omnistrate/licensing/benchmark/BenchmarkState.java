@@ -0,0 +1,131 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.certificate.TrustStore;
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Shared benchmark fixtures: a generated root CA, a signing certificate issued by it for
+ * {@link #DOMAIN}, a signed license envelope and the same material written to temporary files.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    public static final String DOMAIN = "licensing.benchmark.local";
+
+    public PrivateKey signingKey;
+    public X509Certificate rootCert;
+    public X509Certificate signingCert;
+    public List<X509Certificate> intermediateCerts;
+    public TrustStore trustStore;
+    public ZonedDateTime currentTime;
+
+    public License license;
+    public byte[] licenseBytes;
+    public byte[] signature;
+    public LicenseEnvelope envelope;
+    public byte[] envelopeBytes;
+    public String envelopeBase64;
+    public byte[] envelopeBinary;
+    public String envelopeBinaryBase64;
+
+    public Path directory;
+    public Path certPath;
+    public Path licensePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        currentTime = ZonedDateTime.now(ZoneOffset.UTC);
+
+        KeyPair rootKeyPair = generateKeyPair();
+        rootCert = issueCertificate("CN=Benchmark Root", rootKeyPair, "CN=Benchmark Root", rootKeyPair.getPrivate(), true, null);
+        KeyPair signingKeyPair = generateKeyPair();
+        signingKey = signingKeyPair.getPrivate();
+        signingCert = issueCertificate("CN=" + DOMAIN, signingKeyPair, "CN=Benchmark Root", rootKeyPair.getPrivate(), false, DOMAIN);
+        intermediateCerts = Collections.emptyList();
+        trustStore = new TrustStore.Builder().trustAnchor(rootCert).build();
+
+        license = new License("org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", "sub-benchmark", "Benchmark license",
+            currentTime.minusDays(1), currentTime.plusDays(30));
+        licenseBytes = license.toBytes();
+        signature = CertificateUtils.sign(signingKey, licenseBytes);
+        envelope = new LicenseEnvelope(license, signature);
+        envelopeBytes = envelope.toBytes();
+        envelopeBase64 = envelope.toBase64();
+        envelopeBinary = envelope.toBinary();
+        envelopeBinaryBase64 = envelope.toBinaryBase64();
+
+        directory = Files.createTempDirectory("omnistrate-licensing-benchmark");
+        certPath = Files.write(directory.resolve("license.crt"), toPem(signingCert).getBytes("UTF-8"));
+        licensePath = Files.write(directory.resolve("license.lic"), envelopeBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(certPath);
+        Files.deleteIfExists(licensePath);
+        Files.deleteIfExists(directory);
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static X509Certificate issueCertificate(String subject, KeyPair subjectKeyPair, String issuer, PrivateKey issuerKey, boolean ca, String dnsName) throws Exception {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+            new X500Name(issuer),
+            BigInteger.valueOf(System.nanoTime()),
+            Date.from(now.minusDays(1).toInstant()),
+            Date.from(now.plusYears(1).toInstant()),
+            new X500Name(subject),
+            subjectKeyPair.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+        if (ca) {
+            builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        } else {
+            builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+            builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(new GeneralName(GeneralName.dNSName, dnsName)));
+        }
+        return new JcaX509CertificateConverter().getCertificate(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(issuerKey)));
+    }
+
+    private static String toPem(X509Certificate cert) throws Exception {
+        return "-----BEGIN CERTIFICATE-----\n"
+            + Base64.getMimeEncoder(64, new byte[] {'\n'}).encodeToString(cert.getEncoded())
+            + "\n-----END CERTIFICATE-----\n";
+    }
+}
@@ -0,0 +1,40 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.validation.Validator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateBenchmark {
+
+    @Benchmark
+    public boolean verifyCertificate(BenchmarkState state) throws Exception {
+        return CertificateUtils.verifyCertificate(state.signingCert, BenchmarkState.DOMAIN, state.currentTime, state.intermediateCerts, state.trustStore);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean verifyCertificateConcurrent(BenchmarkState state) throws Exception {
+        return CertificateUtils.verifyCertificate(state.signingCert, BenchmarkState.DOMAIN, state.currentTime, state.intermediateCerts, state.trustStore);
+    }
+
+    @Benchmark
+    public boolean validateCertificateCached(BenchmarkState state) throws Exception {
+        Validator validator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore);
+        return validator.validateCertificate(BenchmarkState.DOMAIN, state.currentTime);
+    }
+}
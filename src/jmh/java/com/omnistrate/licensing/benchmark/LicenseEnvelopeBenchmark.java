@@ -0,0 +1,86 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.common.LicenseEnvelope;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LicenseEnvelopeBenchmark {
+
+    // Data binding configuration previously used by LicenseEnvelope.parseBytes, kept as a baseline
+    private static final ObjectMapper DATABIND_MAPPER = new ObjectMapper()
+        .setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Benchmark
+    public LicenseEnvelope parseBytes(BenchmarkState state) throws Exception {
+        return LicenseEnvelope.parseBytes(state.envelopeBytes);
+    }
+
+    @Benchmark
+    public LicenseEnvelope parseBytesDatabind(BenchmarkState state) throws Exception {
+        return DATABIND_MAPPER.readValue(state.envelopeBytes, LicenseEnvelope.class);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public LicenseEnvelope parseBytesConcurrent(BenchmarkState state) throws Exception {
+        return LicenseEnvelope.parseBytes(state.envelopeBytes);
+    }
+
+    @Benchmark
+    public LicenseEnvelope parseBase64(BenchmarkState state) throws Exception {
+        return LicenseEnvelope.parseBase64(state.envelopeBase64);
+    }
+
+    // Encoded sizes of the benchmark envelope, printed once per trial next to the decode times
+    @State(Scope.Benchmark)
+    public static class SizeReport {
+
+        @Setup
+        public void setUp(BenchmarkState state) {
+            System.out.printf("%nEnvelope size: JSON %d bytes, JSON base64 %d chars, binary %d bytes, binary base64 %d chars%n",
+                state.envelopeBytes.length, state.envelopeBase64.length(), state.envelopeBinary.length, state.envelopeBinaryBase64.length());
+        }
+    }
+
+    @Benchmark
+    public LicenseEnvelope parseBinary(BenchmarkState state, SizeReport sizes) throws Exception {
+        return LicenseEnvelope.parseBytes(state.envelopeBinary);
+    }
+
+    @Benchmark
+    public LicenseEnvelope parseBinaryBase64(BenchmarkState state) throws Exception {
+        return LicenseEnvelope.parseBase64(state.envelopeBinaryBase64);
+    }
+
+    @Benchmark
+    public byte[] toBinary(BenchmarkState state) {
+        return state.envelope.toBinary();
+    }
+
+    @Benchmark
+    public byte[] licenseToBytes(BenchmarkState state) {
+        return state.license.toBytes();
+    }
+}
@@ -0,0 +1,106 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.certificate.Signer;
+import com.omnistrate.licensing.common.SignatureAlgorithm;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of the supported signature algorithms over a license.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureAlgorithmBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class AlgorithmState {
+
+        @Param({"RS256", "ES256", "EdDSA"})
+        public SignatureAlgorithm algorithm;
+
+        public Signer signer;
+        public X509Certificate cert;
+        public byte[] licenseBytes;
+        public byte[] signature;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkState state) throws Exception {
+            // Unregistered, only used to issue the certificate on Java versions without Ed25519
+            Provider bc = new BouncyCastleProvider();
+            KeyPair keyPair = generateKeyPair(algorithm, bc);
+            ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+            cert = new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(
+                new X500Name("CN=" + BenchmarkState.DOMAIN),
+                BigInteger.ONE,
+                Date.from(now.minusDays(1).toInstant()),
+                Date.from(now.plusDays(30).toInstant()),
+                new X500Name("CN=" + BenchmarkState.DOMAIN),
+                keyPair.getPublic())
+                .build(new JcaContentSignerBuilder(algorithm.getJcaName()).setProvider(bc).build(keyPair.getPrivate())));
+
+            signer = new Signer(keyPair.getPrivate());
+            licenseBytes = state.licenseBytes;
+            signature = signer.sign(licenseBytes);
+        }
+
+        private static KeyPair generateKeyPair(SignatureAlgorithm algorithm, Provider bc) throws Exception {
+            switch (algorithm) {
+                case ES256:
+                    KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+                    ecGenerator.initialize(256);
+                    return ecGenerator.generateKeyPair();
+                case EdDSA:
+                    try {
+                        return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+                    } catch (NoSuchAlgorithmException e) {
+                        return KeyPairGenerator.getInstance("Ed25519", bc).generateKeyPair();
+                    }
+                default:
+                    KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+                    rsaGenerator.initialize(2048);
+                    return rsaGenerator.generateKeyPair();
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] sign(AlgorithmState state) throws Exception {
+        return state.signer.sign(state.licenseBytes);
+    }
+
+    @Benchmark
+    public boolean verify(AlgorithmState state) throws Exception {
+        return CertificateUtils.verifySignature(state.cert, state.signature, state.licenseBytes);
+    }
+}
@@ -0,0 +1,89 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.certificate.Signer;
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureBenchmark {
+
+    @Benchmark
+    public boolean verifySignature(BenchmarkState state) throws Exception {
+        return CertificateUtils.verifySignature(state.signingCert, state.signature, state.licenseBytes);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean verifySignatureConcurrent(BenchmarkState state) throws Exception {
+        return CertificateUtils.verifySignature(state.signingCert, state.signature, state.licenseBytes);
+    }
+
+    @Benchmark
+    public byte[] sign(BenchmarkState state) throws Exception {
+        return CertificateUtils.sign(state.signingKey, state.licenseBytes);
+    }
+
+    @State(Scope.Benchmark)
+    public static class SignerState {
+
+        @Param({"1024"})
+        public int size;
+
+        public Signer signer;
+        public List<License> licenses;
+
+        @Setup
+        public void setUp(BenchmarkState state) throws Exception {
+            signer = new Signer(state.signingKey);
+            licenses = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                licenses.add(new License("org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-" + i, "sub-benchmark", "Benchmark license",
+                    state.currentTime.minusDays(1), state.currentTime.plusDays(30)));
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] signWithSigner(BenchmarkState state, SignerState signer) throws Exception {
+        return signer.signer.sign(state.licenseBytes);
+    }
+
+    // Baseline for the batch API: one license at a time on the benchmark thread
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<LicenseEnvelope> signAllSequential(BenchmarkState state, SignerState signer) throws Exception {
+        List<LicenseEnvelope> envelopes = new ArrayList<>(signer.licenses.size());
+        for (License license : signer.licenses) {
+            envelopes.add(new LicenseEnvelope(license, CertificateUtils.sign(state.signingKey, license.toBytes())));
+        }
+        return envelopes;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<LicenseEnvelope> signAll(SignerState signer) throws Exception {
+        return signer.signer.signAll(signer.licenses);
+    }
+}
@@ -0,0 +1,90 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start cost of the first signature verification in a fresh JVM, as seen by short-lived
+ * batch jobs. Every fork measures a single call, so the result includes class loading and provider
+ * initialization. The Bouncy Castle variant registers the provider first, as the SDK used to do
+ * when CertificateUtils was loaded.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    /**
+     * Fixtures built with the JDK providers only, so CertificateUtils is first loaded by the benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class StartupState {
+        byte[] certPem;
+        byte[] data;
+        byte[] signature;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+            byte[] encoded = new JcaX509v3CertificateBuilder(
+                new X500Name("CN=" + BenchmarkState.DOMAIN),
+                BigInteger.ONE,
+                Date.from(now.minusDays(1).toInstant()),
+                Date.from(now.plusDays(1).toInstant()),
+                new X500Name("CN=" + BenchmarkState.DOMAIN),
+                keyPair.getPublic())
+                .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()))
+                .getEncoded();
+            certPem = ("-----BEGIN CERTIFICATE-----\n"
+                + Base64.getMimeEncoder(64, new byte[] {'\n'}).encodeToString(encoded)
+                + "\n-----END CERTIFICATE-----\n").getBytes(StandardCharsets.US_ASCII);
+
+            data = "startup".getBytes(StandardCharsets.UTF_8);
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(keyPair.getPrivate());
+            signer.update(data);
+            signature = signer.sign();
+        }
+    }
+
+    @Benchmark
+    public boolean firstVerification(StartupState state) throws Exception {
+        return CertificateUtils.verifySignature(CertificateUtils.loadCertificateFromBytes(state.certPem), state.signature, state.data);
+    }
+
+    @Benchmark
+    public boolean firstVerificationWithBouncyCastle(StartupState state) throws Exception {
+        CertificateUtils.registerBouncyCastleProvider();
+        return CertificateUtils.verifySignature(CertificateUtils.loadCertificateFromBytes(state.certPem), state.signature, state.data);
+    }
+}
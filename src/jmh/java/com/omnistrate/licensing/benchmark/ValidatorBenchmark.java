@@ -0,0 +1,160 @@
+package com.omnistrate.licensing.benchmark;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.common.ValidationResult;
+import com.omnistrate.licensing.validation.CertificateValidationCache;
+import com.omnistrate.licensing.validation.LicenseCheck;
+import com.omnistrate.licensing.validation.RejectedLicenseCache;
+import com.omnistrate.licensing.validation.SignatureVerificationCache;
+import com.omnistrate.licensing.validation.ValidationOptions;
+import com.omnistrate.licensing.validation.Validator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    @Benchmark
+    public boolean validateLicenseBytes(BenchmarkState state) throws Exception {
+        Validator validator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore);
+        return validator.validateLicenseBytes(state.envelopeBytes, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", state.currentTime);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean validateLicenseBytesConcurrent(BenchmarkState state) throws Exception {
+        Validator validator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore);
+        return validator.validateLicenseBytes(state.envelopeBytes, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", state.currentTime);
+    }
+
+    // The generated signing certificate does not chain to the built-in trust store, so the options
+    // based flow is measured without certificate validation: file reads, parsing and signature only
+    @Benchmark
+    public boolean validateLicenseWithOptions(BenchmarkState state) throws Exception {
+        return Validator.validateLicenseWithOptions(new ValidationOptions.Builder()
+            .skipCertificateValidation(true)
+            .certPath(state.certPath.toString())
+            .licensePath(state.licensePath.toString())
+            .organizationID("org-benchmark")
+            .productPlanUniqueID("PRODUCT-BENCHMARK-SKU")
+            .instanceID("instance-benchmark")
+            .currentTime(state.currentTime)
+            .build());
+    }
+
+    @State(Scope.Benchmark)
+    public static class BatchState {
+
+        @Param({"1024"})
+        public int size;
+
+        public Validator validator;
+        public List<LicenseCheck> checks;
+
+        @Setup
+        public void setUp(BenchmarkState state) throws Exception {
+            validator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore);
+            checks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                License license = new License("org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-" + i, "sub-benchmark", "Benchmark license",
+                    state.currentTime.minusDays(1), state.currentTime.plusDays(30));
+                byte[] envelopeBytes = new LicenseEnvelope(license, CertificateUtils.sign(state.signingKey, license.toBytes())).toBytes();
+                checks.add(new LicenseCheck(envelopeBytes, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-" + i));
+            }
+        }
+    }
+
+    // Baseline for the batch API: one envelope at a time on the benchmark thread
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int checkLicensesSequential(BenchmarkState state, BatchState batch) {
+        int valid = 0;
+        for (LicenseCheck check : batch.checks) {
+            if (batch.validator.checkLicenseBytes(check.getEnvelopeBytes(), check.getOrganizationID(), check.getProductPlanUniqueID(), check.getInstanceID(), state.currentTime).isValid()) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ValidationResult> checkLicensesBatch(BenchmarkState state, BatchState batch) {
+        return batch.validator.checkLicenses(batch.checks, state.currentTime);
+    }
+
+    @State(Scope.Benchmark)
+    public static class RejectedState {
+
+        public Validator validator;
+        public Validator cachingValidator;
+        public String tamperedBase64;
+
+        @Setup
+        public void setUp(BenchmarkState state) throws Exception {
+            byte[] signature = state.signature.clone();
+            signature[0] ^= 1;
+            tamperedBase64 = Base64.getEncoder().encodeToString(new LicenseEnvelope(state.license, signature).toBytes());
+            validator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore);
+            cachingValidator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore, CertificateValidationCache.getDefault(), new RejectedLicenseCache());
+        }
+    }
+
+    // A replayed envelope with a tampered signature: decoded, parsed and verified every time
+    @Benchmark
+    public ValidationResult checkTamperedLicense(BenchmarkState state, RejectedState rejected) {
+        return rejected.validator.checkLicenseBase64(rejected.tamperedBase64, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", state.currentTime, "client-benchmark");
+    }
+
+    // The same envelope answered from the rejected license cache
+    @Benchmark
+    public ValidationResult checkTamperedLicenseCached(BenchmarkState state, RejectedState rejected) {
+        return rejected.cachingValidator.checkLicenseBase64(rejected.tamperedBase64, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", state.currentTime, "client-benchmark");
+    }
+
+    @State(Scope.Benchmark)
+    public static class VerificationCacheState {
+
+        public Validator validator;
+        public Validator cachingValidator;
+
+        @Setup
+        public void setUp(BenchmarkState state) {
+            validator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore);
+            cachingValidator = new Validator(state.signingCert, state.intermediateCerts, state.trustStore, CertificateValidationCache.getDefault(), null, new SignatureVerificationCache());
+        }
+    }
+
+    // The same valid envelope checked repeatedly, with and without reusing the signature verification
+    @Benchmark
+    public ValidationResult checkRepeatedLicense(BenchmarkState state, VerificationCacheState verification) {
+        return verification.validator.checkLicenseBytes(state.envelopeBytes, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", state.currentTime);
+    }
+
+    @Benchmark
+    public ValidationResult checkRepeatedLicenseCached(BenchmarkState state, VerificationCacheState verification) {
+        return verification.cachingValidator.checkLicenseBytes(state.envelopeBytes, "org-benchmark", "PRODUCT-BENCHMARK-SKU", "instance-benchmark", state.currentTime);
+    }
+}
@@ -0,0 +1,70 @@
+package com.omnistrate.licensing.certificate;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the remaining bytes of a buffer, so direct and memory-mapped buffers can be passed to
+ * stream based parsers without copying them to the heap first.
+ */
+final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+    private int mark;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.mark = buffer.position();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        position(buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = buffer.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+        position(mark);
+    }
+
+    // Through Buffer, ByteBuffer.position(int) only exists from Java 9 on
+    private void position(int position) {
+        ((Buffer) buffer).position(position);
+    }
+}
@@ -4,17 +4,22 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemReader;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
-import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
+import java.security.Provider;
 import java.security.PublicKey;
 import java.security.Security;
 import java.security.Signature;
@@ -24,36 +29,56 @@ import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.security.cert.PKIXParameters;
-import java.security.cert.TrustAnchor;
 import java.security.cert.X509CertSelector;
 import java.security.cert.CertPathValidator;
 import java.security.cert.PKIXBuilderParameters;
 import java.security.cert.CertificateException;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathBuilder;
+import java.security.cert.PKIXCertPathBuilderResult;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.CertificateParsingException;
 import java.time.ZonedDateTime;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import com.omnistrate.licensing.common.InvalidCertificateException;
 import com.omnistrate.licensing.common.InvalidPrivateKeyException;
 import com.omnistrate.licensing.common.InvalidSignatureException;
+import com.omnistrate.licensing.common.SignatureAlgorithm;
 
 public class CertificateUtils {
 
-    static {
-        Security.addProvider(new BouncyCastleProvider());
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    // Key factories tried in order for PKCS#8 private keys
+    private static final String[] PRIVATE_KEY_ALGORITHMS = {"RSA", "EC", "Ed25519"};
+
+    // Signature engines are not thread-safe, they are reused across calls and re-initialized on every use
+    static final EngineCache<Signature> SIGN_ENGINES = EngineCache.create(() -> Signature.getInstance(SIGNATURE_ALGORITHM));
+    // Replaced when ProviderCalibration pins a provider
+    static volatile EngineCache<Signature> VERIFY_ENGINES = verifyEngines(null);
+    // Engines of the algorithms other than RS256, by algorithm
+    private static final Map<SignatureAlgorithm, EngineCache<Signature>> OTHER_SIGN_ENGINES = signatureEngines();
+    private static final Map<SignatureAlgorithm, EngineCache<Signature>> OTHER_VERIFY_ENGINES = signatureEngines();
+    private static final EngineCache<CertPathBuilder> CERT_PATH_BUILDERS = EngineCache.create(() -> CertPathBuilder.getInstance("PKIX"));
+    private static final EngineCache<CertPathValidator> CERT_PATH_VALIDATORS = EngineCache.create(() -> CertPathValidator.getInstance("PKIX"));
+
+    /**
+     * Registers the Bouncy Castle provider with the JVM, unless it already is, for applications
+     * that look it up by name. The SDK verifies with the JDK providers and only registers Bouncy
+     * Castle itself when it loads a private key the JDK cannot parse.
+     */
+    public static Provider registerBouncyCastleProvider() {
+        return BouncyCastle.PROVIDER;
     }
 
     public static X509Certificate loadCertificate(String certPath) throws InvalidCertificateException {
-        try (FileInputStream fis = new FileInputStream(new File(certPath))) {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(new File(certPath)))) {
             CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            return (X509Certificate) cf.generateCertificate(fis);
+            return (X509Certificate) cf.generateCertificate(in);
         } catch (FileNotFoundException e) {
             throw new InvalidCertificateException("Certificate file not found: " + certPath);
         } catch (CertificateException e) {
@@ -64,16 +89,8 @@ public class CertificateUtils {
     }
 
     public static List<X509Certificate> loadCertificateChain(String certPath) throws InvalidCertificateException {
-        try (FileInputStream fis = new FileInputStream(new File(certPath))) {
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            Collection<?> certs = cf.generateCertificates(fis);
-            List<X509Certificate> certList = new java.util.ArrayList<>();
-            for (Object cert : certs) {
-                if (cert instanceof X509Certificate) {
-                    certList.add((X509Certificate) cert);
-                }
-            }
-            return certList;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(new File(certPath)))) {
+            return generateCertificates(in);
         } catch (FileNotFoundException e) {
             throw new InvalidCertificateException("Certificate file not found: " + certPath);
         } catch (CertificateException e) {
@@ -94,20 +111,59 @@ public class CertificateUtils {
 
     public static List<X509Certificate> loadCertificateChainFromBytes(byte[] certBytes) throws InvalidCertificateException {
         try {
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            Collection<?> certs = cf.generateCertificates(new ByteArrayInputStream(certBytes));
-            List<X509Certificate> certList = new java.util.ArrayList<>();
-            for (Object cert : certs) {
-                if (cert instanceof X509Certificate) {
-                    certList.add((X509Certificate) cert);
-                }
-            }
-            return certList;
+            return generateCertificates(new ByteArrayInputStream(certBytes));
         } catch (CertificateException e) {
             throw new InvalidCertificateException("Failed to load certificate chain from bytes", e);
         }
     }
 
+    /**
+     * Reads a PEM or DER encoded certificate chain from the stream, which is not closed.
+     */
+    public static List<X509Certificate> loadCertificateChainFromStream(InputStream in) throws InvalidCertificateException {
+        try {
+            // The certificate factory reads in small pieces and needs mark/reset to detect PEM input
+            return generateCertificates(in.markSupported() ? in : new BufferedInputStream(in));
+        } catch (CertificateException e) {
+            throw new InvalidCertificateException("Failed to load certificate chain from stream", e);
+        }
+    }
+
+    /**
+     * Reads a certificate chain from the remaining bytes of the buffer, without copying them and
+     * without moving its position. Works with direct and memory-mapped buffers.
+     */
+    public static List<X509Certificate> loadCertificateChainFromBuffer(ByteBuffer certBytes) throws InvalidCertificateException {
+        try {
+            if (certBytes.hasArray()) {
+                return generateCertificates(new ByteArrayInputStream(certBytes.array(), certBytes.arrayOffset() + certBytes.position(), certBytes.remaining()));
+            }
+            return generateCertificates(new ByteBufferInputStream(certBytes.duplicate()));
+        } catch (CertificateException e) {
+            throw new InvalidCertificateException("Failed to load certificate chain from buffer", e);
+        }
+    }
+
+    /**
+     * Reads a certificate chain from the channel, which is not closed.
+     */
+    public static List<X509Certificate> loadCertificateChainFromChannel(ReadableByteChannel channel) throws InvalidCertificateException {
+        // Not closed, closing the wrapper would close the channel
+        return loadCertificateChainFromStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    }
+
+    private static List<X509Certificate> generateCertificates(InputStream in) throws CertificateException {
+        CertificateFactory cf = CertificateFactory.getInstance("X.509");
+        Collection<?> certs = cf.generateCertificates(in);
+        List<X509Certificate> certList = new java.util.ArrayList<>();
+        for (Object cert : certs) {
+            if (cert instanceof X509Certificate) {
+                certList.add((X509Certificate) cert);
+            }
+        }
+        return certList;
+    }
+
     public static X509Certificate loadCertificateFromString(String certString) throws InvalidCertificateException {
         return loadCertificateFromBytes(certString.getBytes());
     }
@@ -116,24 +172,41 @@ public class CertificateUtils {
         return loadCertificateChainFromBytes(certString.getBytes());
     }
 
+    /**
+     * Loads an RSA, EC or Ed25519 private key in PKCS#8 form, or an RSA private key in PKCS#1 form.
+     */
     public static PrivateKey loadPrivateKeyFromBytes(byte[] pemContent) throws InvalidPrivateKeyException {
-        try {
-            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(pemContent);
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA", "BC");
-            return keyFactory.generatePrivate(keySpec);
-        } catch (NoSuchAlgorithmException ex) {
-            throw new InvalidPrivateKeyException("Failed to load private key: RSA algorithm not found", ex);
-        } catch (NoSuchProviderException ex) {
-            throw new InvalidPrivateKeyException("Failed to load private key: Bouncy Castle provider not found", ex);
-        } catch (InvalidKeySpecException ex) {
-            throw new InvalidPrivateKeyException("Failed to load private key: Invalid key spec", ex);
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(pemContent);
+        for (String algorithm : PRIVATE_KEY_ALGORITHMS) {
+            try {
+                // PKCS#8 keys are parsed by the JDK, without loading Bouncy Castle
+                return KeyFactory.getInstance(algorithm).generatePrivate(keySpec);
+            } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+                // Another key type, or Ed25519 before Java 15
+            }
+        }
+        // PKCS#1 "RSA PRIVATE KEY" content, which only the Bouncy Castle key factory accepts, and Ed25519 before Java 15
+        InvalidKeySpecException failure = null;
+        for (String algorithm : new String[] {"RSA", "Ed25519"}) {
+            try {
+                KeyFactory keyFactory = KeyFactory.getInstance(algorithm, BouncyCastle.PROVIDER);
+                return keyFactory.generatePrivate(keySpec);
+            } catch (NoSuchAlgorithmException ex) {
+                throw new InvalidPrivateKeyException("Failed to load private key: " + algorithm + " algorithm not found", ex);
+            } catch (InvalidKeySpecException ex) {
+                failure = ex;
+            }
         }
+        throw new InvalidPrivateKeyException("Failed to load private key: Invalid key spec", failure);
     }
 
     public static PrivateKey loadPrivateKeyFromString(String keyString) throws InvalidPrivateKeyException {
         try {
             PemReader pemReader = new PemReader(new StringReader(keyString));
             PemObject pemObject = pemReader.readPemObject();
+            if (pemObject == null) {
+                throw new InvalidPrivateKeyException("Failed to load private key from string: no PEM object found");
+            }
             byte[] pemContent = pemObject.getContent();
             return loadPrivateKeyFromBytes(pemContent);
         } catch (IOException e) {
@@ -141,92 +214,189 @@ public class CertificateUtils {
         }
     }
 
+    /**
+     * Signs with the algorithm of the key type, see {@link SignatureAlgorithm#forKey}.
+     */
     public static byte[] sign(PrivateKey key, byte[] data) throws Exception {
-        Signature signature = Signature.getInstance("SHA256withRSA");
-        signature.initSign(key);
-        signature.update(data);
-        return signature.sign();
+        SignatureAlgorithm algorithm = SignatureAlgorithm.forKey(key);
+        if (algorithm == null) {
+            throw new InvalidPrivateKeyException("Unsupported private key type: " + key.getAlgorithm());
+        }
+        EngineCache<Signature> engines = algorithm == SignatureAlgorithm.RS256 ? SIGN_ENGINES : OTHER_SIGN_ENGINES.get(algorithm);
+        Signature signature = engines.acquire();
+        try {
+            signature.initSign(key);
+            signature.update(data);
+            return signature.sign();
+        } finally {
+            engines.release(signature);
+        }
     }
 
+    /**
+     * Verifies with the algorithm of the certificate key.
+     */
     public static boolean verifySignature(X509Certificate cert, byte[] signature, byte[] data) throws InvalidSignatureException {
+        return verifySignature(cert, null, signature, ByteBuffer.wrap(data));
+    }
+
+    public static boolean verifySignature(X509Certificate cert, byte[] signature, ByteBuffer data) throws InvalidSignatureException {
+        return verifySignature(cert, null, signature, data);
+    }
+
+    public static boolean verifySignature(X509Certificate cert, SignatureAlgorithm algorithm, byte[] signature, byte[] data) throws InvalidSignatureException {
+        return verifySignature(cert, algorithm, signature, ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Verifies with the algorithm of the certificate key. The engine is always chosen by the key;
+     * a non-null {@code algorithm}, such as the one recorded in an envelope, must match it.
+     */
+    public static boolean verifySignature(X509Certificate cert, SignatureAlgorithm algorithm, byte[] signature, ByteBuffer data) throws InvalidSignatureException {
+        PublicKey publicKey = cert.getPublicKey();
+        SignatureAlgorithm keyAlgorithm = SignatureAlgorithm.forKey(publicKey);
+        if (keyAlgorithm == null) {
+            throw new InvalidSignatureException("Unsupported certificate key type: " + publicKey.getAlgorithm());
+        }
+        if (algorithm != null && algorithm != keyAlgorithm) {
+            throw new InvalidSignatureException("Signature algorithm " + algorithm.getIdentifier() + " does not match the certificate key type " + publicKey.getAlgorithm());
+        }
+        EngineCache<Signature> engines = keyAlgorithm == SignatureAlgorithm.RS256 ? VERIFY_ENGINES : OTHER_VERIFY_ENGINES.get(keyAlgorithm);
+        Signature sig = null;
         try {
-            PublicKey publicKey = cert.getPublicKey();
-            Signature sig = Signature.getInstance("SHA256withRSA");
+            // initVerify resets any state left on the reused engine by a previous call
+            sig = engines.acquire();
             sig.initVerify(publicKey);
-            sig.update(data);
+            sig.update(data.duplicate());
             return sig.verify(signature);
         } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
             throw new InvalidSignatureException("Failed to verify signature", e);
+        } finally {
+            if (sig != null) {
+                engines.release(sig);
+            }
         }
     }
 
-   public static boolean verifyCertificate(X509Certificate cert, String dnsName, ZonedDateTime currentTime, List<X509Certificate> intermediateCerts) throws InvalidCertificateException {
+    /**
+     * Returns a new engine for the algorithm. Ed25519 needs Java 15 or later, earlier versions
+     * use Bouncy Castle.
+     */
+    static Signature newSignature(SignatureAlgorithm algorithm) throws NoSuchAlgorithmException {
+        try {
+            return Signature.getInstance(algorithm.getJcaName());
+        } catch (NoSuchAlgorithmException e) {
+            if (algorithm != SignatureAlgorithm.EdDSA) {
+                throw e;
+            }
+            return Signature.getInstance(algorithm.getJcaName(), BouncyCastle.PROVIDER);
+        }
+    }
+
+    private static Map<SignatureAlgorithm, EngineCache<Signature>> signatureEngines() {
+        Map<SignatureAlgorithm, EngineCache<Signature>> engines = new EnumMap<>(SignatureAlgorithm.class);
+        for (SignatureAlgorithm algorithm : SignatureAlgorithm.values()) {
+            if (algorithm != SignatureAlgorithm.RS256) {
+                engines.put(algorithm, EngineCache.create(() -> newSignature(algorithm)));
+            }
+        }
+        return engines;
+    }
+
+    static EngineCache<Signature> verifyEngines(Provider provider) {
+        if (provider == null) {
+            return EngineCache.create(() -> Signature.getInstance(SIGNATURE_ALGORITHM));
+        }
+        return EngineCache.create(() -> Signature.getInstance(SIGNATURE_ALGORITHM, provider));
+    }
+
+    public static boolean verifyCertificate(X509Certificate cert, String dnsName, ZonedDateTime currentTime, List<X509Certificate> intermediateCerts) throws InvalidCertificateException {
+        return verifyCertificate(cert, dnsName, currentTime, intermediateCerts, TrustStore.getDefault());
+    }
+
+    public static boolean verifyCertificate(X509Certificate cert, String dnsName, ZonedDateTime currentTime, List<X509Certificate> intermediateCerts, TrustStore trustStore) throws InvalidCertificateException {
+        return verifyCertificate(cert, dnsName, currentTime, intermediateCerts, trustStore, null);
+    }
+
+    /**
+     * Verifies the certificate and, when given, the DER encoded OCSP response stapled to it. The
+     * response is checked offline against the issuer of the certificate in the validated path.
+     */
+    public static boolean verifyCertificate(X509Certificate cert, String dnsName, ZonedDateTime currentTime, List<X509Certificate> intermediateCerts, TrustStore trustStore, byte[] ocspResponse) throws InvalidCertificateException {
+        verifyCertificatePath(cert, dnsName, currentTime, intermediateCerts, trustStore, ocspResponse);
+        return true;
+    }
+
+    public static PKIXCertPathBuilderResult verifyCertificatePath(X509Certificate cert, String dnsName, ZonedDateTime currentTime, List<X509Certificate> intermediateCerts, TrustStore trustStore) throws InvalidCertificateException {
+        return verifyCertificatePath(cert, dnsName, currentTime, intermediateCerts, trustStore, null);
+    }
+
+    public static PKIXCertPathBuilderResult verifyCertificatePath(X509Certificate cert, String dnsName, ZonedDateTime currentTime, List<X509Certificate> intermediateCerts, TrustStore trustStore, byte[] ocspResponse) throws InvalidCertificateException {
         // Check certificate validity date
+        java.util.Date validationDate = java.util.Date.from(currentTime.toInstant());
         try {
-            cert.checkValidity(java.util.Date.from(currentTime.toInstant()));
+            cert.checkValidity(validationDate);
         } catch (CertificateExpiredException | CertificateNotYetValidException e) {
             throw new InvalidCertificateException("Certificate is not valid at " + currentTime, e);
         }
 
+        PKIXCertPathBuilderResult pathResult;
         try {
-            // Use only the root CA as the trust anchor
-            Set<TrustAnchor> trustAnchors = new HashSet<>();
-            X509Certificate rootCert = loadCertificateFromString(Certificates.ISRGROOTX1);
-            trustAnchors.add(new TrustAnchor(rootCert, null));
-
             // Build certificate path by validating the certificate chain up to the trusted root
             // This approach doesn't require hardcoding intermediate certificates as trust anchors
             X509CertSelector certSelector = new X509CertSelector();
             certSelector.setCertificate(cert);
 
-            PKIXBuilderParameters builderParams = new PKIXBuilderParameters(trustAnchors, certSelector);
+            PKIXBuilderParameters builderParams = new PKIXBuilderParameters(trustStore.getTrustAnchors(), certSelector);
             builderParams.setRevocationEnabled(false); // Disable revocation checking
-            builderParams.setDate(java.util.Date.from(currentTime.toInstant())); // Set the date for validation
-
-            // Add intermediate certificates to the cert store for path building
-            // This allows any intermediate certificate to be used for validation without hardcoding them as trust anchors
-            List<X509Certificate> certStoreList = new java.util.ArrayList<>();
-            
-            // Add commonly known Let's Encrypt intermediate certificates
-            // These are NOT trust anchors - they're just available for building the path to the root
-            // New intermediates can be added here without changing the validation logic
-            try {
-                certStoreList.add(loadCertificateFromString(Certificates.R10));
-                certStoreList.add(loadCertificateFromString(Certificates.R11));
-                certStoreList.add(loadCertificateFromString(Certificates.R12));
-                certStoreList.add(loadCertificateFromString(Certificates.R13));
-            } catch (InvalidCertificateException e) {
-                throw new InvalidCertificateException("Failed to load built-in intermediate certificates", e);
-            }
-            
-            // Add any additional intermediate certificates provided by the caller
-            if (!intermediateCerts.isEmpty()) {
-                certStoreList.addAll(intermediateCerts);
-            }
+            builderParams.setDate(validationDate); // Set the date for validation
+
+            // The trust store intermediates are pre-parsed and shared, they are only used for building the path to the root
+            builderParams.addCertStore(trustStore.getCertStore());
 
-            if (!certStoreList.isEmpty()) {
+            // Add any additional intermediate certificates provided by the caller
+            if (intermediateCerts != null && !intermediateCerts.isEmpty()) {
                 java.security.cert.CertStore certStore = java.security.cert.CertStore.getInstance(
                     "Collection",
-                    new java.security.cert.CollectionCertStoreParameters(certStoreList)
+                    new java.security.cert.CollectionCertStoreParameters(intermediateCerts)
                 );
                 builderParams.addCertStore(certStore);
             }
 
             // Build and validate the certificate path
-            CertPathBuilder certPathBuilder = CertPathBuilder.getInstance("PKIX");
-            CertPath certPath = certPathBuilder.build(builderParams).getCertPath();
-            
+            CertPathBuilder certPathBuilder = CERT_PATH_BUILDERS.acquire();
+            try {
+                pathResult = (PKIXCertPathBuilderResult) certPathBuilder.build(builderParams);
+            } finally {
+                CERT_PATH_BUILDERS.release(certPathBuilder);
+            }
+            CertPath certPath = pathResult.getCertPath();
+
             // Validate the certificate path
-            CertPathValidator certPathValidator = CertPathValidator.getInstance("PKIX");
-            PKIXParameters validationParams = new PKIXParameters(trustAnchors);
+            PKIXParameters validationParams = new PKIXParameters(trustStore.getTrustAnchors());
             validationParams.setRevocationEnabled(false);
-            validationParams.setDate(java.util.Date.from(currentTime.toInstant()));
-            
-            certPathValidator.validate(certPath, validationParams);
+            validationParams.setDate(validationDate);
+
+            CertPathValidator certPathValidator = CERT_PATH_VALIDATORS.acquire();
+            try {
+                certPathValidator.validate(certPath, validationParams);
+            } finally {
+                CERT_PATH_VALIDATORS.release(certPathValidator);
+            }
         } catch (Exception e) {
             throw new InvalidCertificateException("Failed to validate certificate", e);
         }
 
+        // Check revocation against the offline CRLs of the trust store, if any
+        CrlStore crlStore = trustStore.getCrlStore();
+        if (crlStore != null) {
+            @SuppressWarnings("unchecked")
+            List<X509Certificate> pathCerts = (List<X509Certificate>) pathResult.getCertPath().getCertificates();
+            crlStore.check(pathCerts, pathResult.getTrustAnchor(), validationDate);
+        }
+
+        verifyStapledOcsp(cert, getIssuerCertificate(pathResult), ocspResponse, currentTime, trustStore);
+
         // Validate the certificate's domain in alt names or CN
         boolean domainValid = false;
         try {
@@ -254,6 +424,49 @@ public class CertificateUtils {
             throw new InvalidCertificateException("Certificate is not valid for the specified domain: " + dnsName);
         }
 
-        return true;
+        return pathResult;
+    }
+
+    /**
+     * Verifies a stapled OCSP response for a certificate whose path to the given issuer has
+     * already been validated. Without a response this only fails if the trust store requires one.
+     */
+    public static void verifyStapledOcsp(X509Certificate cert, X509Certificate issuerCert, byte[] ocspResponse, ZonedDateTime currentTime, TrustStore trustStore) throws InvalidCertificateException {
+        if (ocspResponse == null) {
+            if (trustStore.isStapledOcspRequired()) {
+                throw new InvalidCertificateException("Stapled OCSP response is required");
+            }
+            return;
+        }
+        StapledOcsp.check(cert, issuerCert, ocspResponse, java.util.Date.from(currentTime.toInstant()));
+    }
+
+    /**
+     * Returns the certificate that issued the end entity of a validated path.
+     */
+    public static X509Certificate getIssuerCertificate(PKIXCertPathBuilderResult pathResult) throws InvalidCertificateException {
+        List<? extends java.security.cert.Certificate> certs = pathResult.getCertPath().getCertificates();
+        if (certs.size() > 1) {
+            return (X509Certificate) certs.get(1);
+        }
+        X509Certificate trustedCert = pathResult.getTrustAnchor().getTrustedCert();
+        if (trustedCert == null) {
+            throw new InvalidCertificateException("Trust anchor has no certificate");
+        }
+        return trustedCert;
+    }
+
+    // Loaded and registered on first use only, registration changes provider lookups for the whole JVM
+    private static final class BouncyCastle {
+        static final Provider PROVIDER = register();
+
+        private static Provider register() {
+            Provider provider = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+            if (provider == null) {
+                Security.addProvider(new BouncyCastleProvider());
+                provider = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+            }
+            return provider;
+        }
     }
 }
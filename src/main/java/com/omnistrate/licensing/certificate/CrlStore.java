@@ -0,0 +1,361 @@
+package com.omnistrate.licensing.certificate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.PublicKey;
+import java.security.cert.CRL;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.security.auth.x500.X500Principal;
+
+import com.omnistrate.licensing.common.InvalidCertificateException;
+
+/**
+ * Offline certificate revocation lists loaded from a local file or directory.
+ * <p>
+ * The CRLs are parsed once and indexed by issuer, with the revoked serial numbers of every issuer
+ * kept in a sorted array, so a revocation check is a hash lookup plus a binary search. The files
+ * are checked for changes, by size and modification time, at most once per refresh interval and
+ * re-parsed only when they changed. A CRL is only trusted once its signature has been verified
+ * with the key of the issuing certificate of the path being validated.
+ * <p>
+ * Checks fail closed: a CRL with an invalid signature, or files that cannot be parsed, reject
+ * every certificate until valid files are mounted again. So does a stale CRL: certificates of an
+ * issuer are rejected unless one of its CRLs is current at the validation date, issued at or
+ * before it and with a {@code nextUpdate} at or after it. Issuers without a CRL are not checked.
+ */
+public final class CrlStore {
+
+    public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Path path;
+    private final long refreshIntervalNanos;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+    private volatile long nextRefreshNanos;
+
+    private CrlStore(Path path, long refreshIntervalMillis) {
+        this.path = path;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+    }
+
+    /**
+     * Loads the CRLs of a file, or of every regular file of a directory. Files may hold any number
+     * of PEM or DER encoded CRLs.
+     */
+    public static CrlStore load(Path path) throws InvalidCertificateException {
+        return load(path, DEFAULT_REFRESH_INTERVAL_MILLIS);
+    }
+
+    public static CrlStore load(Path path, long refreshIntervalMillis) throws InvalidCertificateException {
+        if (refreshIntervalMillis < 0) {
+            throw new IllegalArgumentException("refreshIntervalMillis must not be negative");
+        }
+        CrlStore store = new CrlStore(path, refreshIntervalMillis);
+        Snapshot initial = store.read(null);
+        if (initial.error != null) {
+            throw initial.error;
+        }
+        store.snapshot = initial;
+        store.nextRefreshNanos = System.nanoTime() + store.refreshIntervalNanos;
+        return store;
+    }
+
+    /**
+     * Returns a number that changes every time the files are reloaded, so results derived from
+     * an earlier set of CRLs can be discarded.
+     */
+    public long getGeneration() {
+        return current().generation;
+    }
+
+    /**
+     * Checks every certificate of a validated path against the CRL of its issuer.
+     *
+     * @param certs the certificate path, starting with the end entity
+     * @param trustAnchor the trust anchor the path was validated against
+     */
+    public void check(List<? extends X509Certificate> certs, TrustAnchor trustAnchor, Date validationDate) throws InvalidCertificateException {
+        Snapshot current = current();
+        if (current.error != null) {
+            throw new InvalidCertificateException("Certificate revocation lists are not usable", current.error);
+        }
+        for (int i = 0; i < certs.size(); i++) {
+            X509Certificate cert = certs.get(i);
+            IssuerCrl crl = current.crls.get(cert.getIssuerX500Principal());
+            if (crl == null) {
+                continue;
+            }
+            PublicKey issuerKey;
+            if (i + 1 < certs.size()) {
+                issuerKey = certs.get(i + 1).getPublicKey();
+            } else if (trustAnchor.getTrustedCert() != null) {
+                issuerKey = trustAnchor.getTrustedCert().getPublicKey();
+            } else {
+                issuerKey = trustAnchor.getCAPublicKey();
+            }
+            crl.verify(issuerKey);
+            if (!crl.isCurrent(validationDate)) {
+                throw new InvalidCertificateException("Certificate revocation list of issuer " + cert.getIssuerX500Principal().getName() + " is not current at " + validationDate.toInstant());
+            }
+            if (crl.isRevoked(cert.getSerialNumber(), validationDate)) {
+                throw new InvalidCertificateException("Certificate has been revoked: serial " + cert.getSerialNumber().toString(16));
+            }
+        }
+    }
+
+    /**
+     * Returns the range of validation dates, as {@code {fromMillis, untilMillis}} inclusive, around
+     * the given date over which {@link #check} keeps accepting the path: inside a current CRL of
+     * every issuer, and before the earliest revocation still ahead of the date of any certificate.
+     * Returns null when the path is not accepted at the date. Signatures are not verified here, the
+     * path must have passed {@link #check} first.
+     */
+    public long[] getValidityWindow(List<? extends X509Certificate> certs, Date validationDate) {
+        Snapshot current = current();
+        if (current.error != null) {
+            return null;
+        }
+        long fromMillis = Long.MIN_VALUE;
+        long untilMillis = Long.MAX_VALUE;
+        for (X509Certificate cert : certs) {
+            IssuerCrl crl = current.crls.get(cert.getIssuerX500Principal());
+            if (crl == null) {
+                continue;
+            }
+            X509CRL currentCrl = crl.getCurrent(validationDate);
+            if (currentCrl == null) {
+                return null;
+            }
+            fromMillis = Math.max(fromMillis, currentCrl.getThisUpdate().getTime());
+            untilMillis = Math.min(untilMillis, currentCrl.getNextUpdate().getTime());
+            long revocationMillis = crl.getRevocationTime(cert.getSerialNumber());
+            if (revocationMillis <= validationDate.getTime()) {
+                return null;
+            }
+            if (revocationMillis != Long.MAX_VALUE) {
+                untilMillis = Math.min(untilMillis, revocationMillis - 1);
+            }
+        }
+        return new long[] {fromMillis, untilMillis};
+    }
+
+    private Snapshot current() {
+        long now = System.nanoTime();
+        if (now - nextRefreshNanos >= 0 && reloadLock.tryLock()) {
+            // Other threads keep using the current snapshot while one thread checks the files
+            try {
+                if (now - nextRefreshNanos >= 0) {
+                    Snapshot previous = snapshot;
+                    Snapshot next = read(previous);
+                    if (next != previous) {
+                        snapshot = next;
+                    }
+                    nextRefreshNanos = System.nanoTime() + refreshIntervalNanos;
+                }
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot read(Snapshot previous) {
+        long generation = previous == null ? 0 : previous.generation + 1;
+        List<Path> files;
+        List<String> fileStamps;
+        try {
+            files = listFiles();
+            fileStamps = new ArrayList<>(files.size());
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                fileStamps.add(file + ":" + attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+            }
+        } catch (IOException e) {
+            return Snapshot.failed(generation, Collections.<String>emptyList(), new InvalidCertificateException("Failed to read certificate revocation lists: " + path, e));
+        }
+        if (previous != null && previous.fileStamps.equals(fileStamps)) {
+            return previous;
+        }
+
+        try {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map<X500Principal, List<X509CRL>> crlsByIssuer = new HashMap<>();
+            for (Path file : files) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    for (CRL crl : factory.generateCRLs(in)) {
+                        X509CRL x509Crl = (X509CRL) crl;
+                        List<X509CRL> issuerCrls = crlsByIssuer.get(x509Crl.getIssuerX500Principal());
+                        if (issuerCrls == null) {
+                            issuerCrls = new ArrayList<>();
+                            crlsByIssuer.put(x509Crl.getIssuerX500Principal(), issuerCrls);
+                        }
+                        issuerCrls.add(x509Crl);
+                    }
+                }
+            }
+            Map<X500Principal, IssuerCrl> crls = new HashMap<>();
+            for (Map.Entry<X500Principal, List<X509CRL>> entry : crlsByIssuer.entrySet()) {
+                crls.put(entry.getKey(), new IssuerCrl(entry.getValue()));
+            }
+            return new Snapshot(generation, fileStamps, crls, null);
+        } catch (IOException | CertificateException | CRLException | RuntimeException e) {
+            return Snapshot.failed(generation, fileStamps, new InvalidCertificateException("Failed to parse certificate revocation lists: " + path, e));
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        if (!Files.isDirectory(path)) {
+            if (!Files.isRegularFile(path)) {
+                throw new IOException("Not a file or directory: " + path);
+            }
+            return Collections.singletonList(path);
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path file : stream) {
+                // Skips the hidden entries of mounted volumes, such as the Kubernetes ..data link
+                if (Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".")) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static final class Snapshot {
+        private final long generation;
+        private final List<String> fileStamps;
+        private final Map<X500Principal, IssuerCrl> crls;
+        private final InvalidCertificateException error;
+
+        Snapshot(long generation, List<String> fileStamps, Map<X500Principal, IssuerCrl> crls, InvalidCertificateException error) {
+            this.generation = generation;
+            this.fileStamps = fileStamps;
+            this.crls = crls;
+            this.error = error;
+        }
+
+        static Snapshot failed(long generation, List<String> fileStamps, InvalidCertificateException error) {
+            return new Snapshot(generation, fileStamps, Collections.<X500Principal, IssuerCrl>emptyMap(), error);
+        }
+    }
+
+    /**
+     * The CRLs of one issuer with their revoked serial numbers merged into one sorted array.
+     */
+    private static final class IssuerCrl {
+        private final List<X509CRL> crls;
+        private final BigInteger[] serials;
+        // Revocation dates, in the order of serials
+        private final long[] revocationTimes;
+        // Key the CRL signatures were last verified with, verification is skipped while it is the same key
+        private volatile PublicKey verifiedKey;
+
+        IssuerCrl(List<X509CRL> crls) {
+            this.crls = crls;
+            List<X509CRLEntry> entries = new ArrayList<>();
+            for (X509CRL crl : crls) {
+                Set<? extends X509CRLEntry> revoked = crl.getRevokedCertificates();
+                if (revoked != null) {
+                    entries.addAll(revoked);
+                }
+            }
+            X509CRLEntry[] sorted = entries.toArray(new X509CRLEntry[0]);
+            Arrays.sort(sorted, (a, b) -> {
+                int result = a.getSerialNumber().compareTo(b.getSerialNumber());
+                return result != 0 ? result : Long.compare(revocationTime(a), revocationTime(b));
+            });
+            this.serials = new BigInteger[sorted.length];
+            this.revocationTimes = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                serials[i] = sorted[i].getSerialNumber();
+                revocationTimes[i] = revocationTime(sorted[i]);
+            }
+        }
+
+        void verify(PublicKey issuerKey) throws InvalidCertificateException {
+            if (issuerKey.equals(verifiedKey)) {
+                return;
+            }
+            for (X509CRL crl : crls) {
+                try {
+                    crl.verify(issuerKey);
+                } catch (Exception e) {
+                    throw new InvalidCertificateException("Certificate revocation list signature is invalid for issuer " + crl.getIssuerX500Principal().getName(), e);
+                }
+            }
+            verifiedKey = issuerKey;
+        }
+
+        private static long revocationTime(X509CRLEntry entry) {
+            Date revocationDate = entry.getRevocationDate();
+            return revocationDate == null ? Long.MIN_VALUE : revocationDate.getTime();
+        }
+
+        /**
+         * Whether any of the CRLs covers the date. CRLs without a next update cannot be shown to be
+         * current and never do.
+         */
+        boolean isCurrent(Date validationDate) {
+            return getCurrent(validationDate) != null;
+        }
+
+        /**
+         * Returns the CRL covering the date with the latest next update, or null when none does.
+         */
+        X509CRL getCurrent(Date validationDate) {
+            X509CRL current = null;
+            for (X509CRL crl : crls) {
+                Date nextUpdate = crl.getNextUpdate();
+                if (nextUpdate != null && !validationDate.before(crl.getThisUpdate()) && !validationDate.after(nextUpdate)
+                    && (current == null || nextUpdate.after(current.getNextUpdate()))) {
+                    current = crl;
+                }
+            }
+            return current;
+        }
+
+        boolean isRevoked(BigInteger serial, Date validationDate) {
+            return getRevocationTime(serial) <= validationDate.getTime();
+        }
+
+        /**
+         * Returns the time the serial is revoked from, or {@code Long.MAX_VALUE} when it is not listed.
+         */
+        long getRevocationTime(BigInteger serial) {
+            int index = Arrays.binarySearch(serials, serial);
+            if (index < 0) {
+                return Long.MAX_VALUE;
+            }
+            // A serial listed by several CRLs is revoked from its earliest revocation date
+            while (index > 0 && serials[index - 1].equals(serial)) {
+                index--;
+            }
+            return revocationTimes[index];
+        }
+    }
+}
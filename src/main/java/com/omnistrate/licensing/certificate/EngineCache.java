@@ -0,0 +1,68 @@
+package com.omnistrate.licensing.certificate;
+
+import java.lang.reflect.Constructor;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reuses JCA engines that are not thread-safe, such as {@link java.security.Signature} and
+ * {@link java.security.MessageDigest}. Callers re-initialize the engine after {@link #acquire()}
+ * and hand it back with {@link #release(Object)} once done.
+ * <p>
+ * This implementation keeps one engine per thread. On Java 21 and later the multi-release jar
+ * provides {@code PooledEngineCache}, which serves virtual threads from a small shared pool
+ * instead, since a virtual thread usually lives for a single request and a per-thread engine would
+ * be created for every call.
+ */
+class EngineCache<T> {
+
+    interface Factory<T> {
+        T create() throws NoSuchAlgorithmException;
+    }
+
+    private static final Constructor<?> POOLED_CONSTRUCTOR = pooledConstructor();
+
+    private final Factory<T> factory;
+    private final ThreadLocal<T> engines = new ThreadLocal<>();
+
+    EngineCache(Factory<T> factory) {
+        this.factory = factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> EngineCache<T> create(Factory<T> factory) {
+        if (POOLED_CONSTRUCTOR != null) {
+            try {
+                return (EngineCache<T>) POOLED_CONSTRUCTOR.newInstance(factory);
+            } catch (ReflectiveOperationException e) {
+                // Fall back to per-thread engines
+            }
+        }
+        return new EngineCache<>(factory);
+    }
+
+    T acquire() throws NoSuchAlgorithmException {
+        T engine = engines.get();
+        if (engine == null) {
+            engine = newEngine();
+            engines.set(engine);
+        }
+        return engine;
+    }
+
+    void release(T engine) {
+        // The engine stays with its thread
+    }
+
+    T newEngine() throws NoSuchAlgorithmException {
+        return factory.create();
+    }
+
+    private static Constructor<?> pooledConstructor() {
+        try {
+            return Class.forName("com.omnistrate.licensing.certificate.PooledEngineCache").getDeclaredConstructor(Factory.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Java 20 or earlier
+            return null;
+        }
+    }
+}
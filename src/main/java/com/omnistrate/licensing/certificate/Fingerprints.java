@@ -0,0 +1,92 @@
+package com.omnistrate.licensing.certificate;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import com.omnistrate.licensing.common.InvalidCertificateException;
+
+public final class Fingerprints {
+
+    // Replaced when ProviderCalibration pins a provider
+    static volatile EngineCache<MessageDigest> SHA256 = sha256Engines(null);
+
+    private Fingerprints() {
+    }
+
+    public static byte[] sha256(byte[] data) {
+        EngineCache<MessageDigest> engines = SHA256;
+        MessageDigest digest = acquire(engines);
+        try {
+            digest.reset();
+            return digest.digest(data);
+        } finally {
+            engines.release(digest);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 digest of the remaining bytes of the buffers, in order. Their positions
+     * are not moved.
+     */
+    public static byte[] sha256(ByteBuffer... parts) {
+        EngineCache<MessageDigest> engines = SHA256;
+        MessageDigest digest = acquire(engines);
+        try {
+            digest.reset();
+            for (ByteBuffer part : parts) {
+                digest.update(part.duplicate());
+            }
+            return digest.digest();
+        } finally {
+            engines.release(digest);
+        }
+    }
+
+    static EngineCache<MessageDigest> sha256Engines(Provider provider) {
+        if (provider == null) {
+            return EngineCache.create(() -> MessageDigest.getInstance("SHA-256"));
+        }
+        return EngineCache.create(() -> MessageDigest.getInstance("SHA-256", provider));
+    }
+
+    private static MessageDigest acquire(EngineCache<MessageDigest> engines) {
+        try {
+            return engines.acquire();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform implementation is required to support SHA-256
+            throw new IllegalStateException("SHA-256 message digest not available", e);
+        }
+    }
+
+    public static byte[] sha256(X509Certificate cert) throws InvalidCertificateException {
+        try {
+            return sha256(cert.getEncoded());
+        } catch (CertificateEncodingException e) {
+            throw new InvalidCertificateException("Failed to encode certificate", e);
+        }
+    }
+
+    public static byte[] sha256(X509Certificate cert, List<X509Certificate> intermediateCerts) throws InvalidCertificateException {
+        EngineCache<MessageDigest> engines = SHA256;
+        MessageDigest digest = acquire(engines);
+        try {
+            digest.reset();
+            digest.update(cert.getEncoded());
+            if (intermediateCerts != null) {
+                for (X509Certificate intermediateCert : intermediateCerts) {
+                    digest.update(intermediateCert.getEncoded());
+                }
+            }
+            return digest.digest();
+        } catch (CertificateEncodingException e) {
+            throw new InvalidCertificateException("Failed to encode certificate", e);
+        } finally {
+            engines.release(digest);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.omnistrate.licensing.certificate;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Optional startup calibration that picks the fastest JCA provider for the SHA256withRSA
+ * verification of {@link CertificateUtils#verifySignature} and for the SHA-256 digests of
+ * {@link Fingerprints}, and pins it for the rest of the process.
+ * <p>
+ * Every installed provider offering the algorithm is timed on a synthetic 2048-bit RSA
+ * verification and on certificate-sized digests. Bouncy Castle is timed as well, without
+ * registering it with the JVM. A provider is only eligible once it has accepted a valid signature
+ * and rejected a tampered one, and produced the same digest as the default provider, so pinning
+ * cannot change validation results. Without a calibration the default provider order is used.
+ */
+public final class ProviderCalibration {
+
+    public static final long DEFAULT_MEASUREMENT_MILLIS = 100;
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int DIGEST_INPUT_SIZE = 1024;
+
+    private static volatile ProviderCalibration current;
+
+    private final String signatureProvider;
+    private final double signatureOpsPerSecond;
+    private final Map<String, Double> signatureResults;
+    private final String digestProvider;
+    private final double digestOpsPerSecond;
+    private final Map<String, Double> digestResults;
+
+    private ProviderCalibration(Map<String, Double> signatureResults, Map<String, Double> digestResults) {
+        this.signatureResults = Collections.unmodifiableMap(signatureResults);
+        this.digestResults = Collections.unmodifiableMap(digestResults);
+        this.signatureProvider = fastest(signatureResults);
+        this.signatureOpsPerSecond = signatureResults.get(signatureProvider);
+        this.digestProvider = fastest(digestResults);
+        this.digestOpsPerSecond = digestResults.get(digestProvider);
+    }
+
+    /**
+     * Times every candidate provider for {@link #DEFAULT_MEASUREMENT_MILLIS} per algorithm and
+     * pins the fastest ones.
+     */
+    public static ProviderCalibration calibrate() throws GeneralSecurityException {
+        return calibrate(DEFAULT_MEASUREMENT_MILLIS);
+    }
+
+    /**
+     * Times every candidate provider for the given duration per algorithm, after a warm-up of
+     * the same length, and pins the fastest ones. Calibrations run one at a time; the last one
+     * wins.
+     *
+     * @throws GeneralSecurityException if no provider passes the correctness checks
+     */
+    public static synchronized ProviderCalibration calibrate(long measurementMillis) throws GeneralSecurityException {
+        if (measurementMillis <= 0) {
+            throw new IllegalArgumentException("measurementMillis must be positive");
+        }
+        long measurementNanos = TimeUnit.MILLISECONDS.toNanos(measurementMillis);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        byte[] data = new byte[DIGEST_INPUT_SIZE];
+        Arrays.fill(data, (byte) 0x5A);
+        Signature signer = Signature.getInstance(SIGNATURE_ALGORITHM);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(data);
+        byte[] signature = signer.sign();
+        byte[] tampered = signature.clone();
+        tampered[tampered.length / 2] ^= 1;
+        byte[] expectedDigest = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(data);
+
+        Map<String, Provider> signatureProviders = new LinkedHashMap<>();
+        Map<String, Double> signatureResults = new LinkedHashMap<>();
+        for (Provider provider : candidates("Signature." + SIGNATURE_ALGORITHM)) {
+            try {
+                Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM, provider);
+                if (!verify(verifier, keyPair, data, signature) || verify(verifier, keyPair, data, tampered)) {
+                    continue;
+                }
+                // Warm-up, then measurement
+                measure(() -> verify(verifier, keyPair, data, signature), measurementNanos);
+                signatureResults.put(provider.getName(), measure(() -> verify(verifier, keyPair, data, signature), measurementNanos));
+                signatureProviders.put(provider.getName(), provider);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                // Not usable with JDK keys, left out
+            }
+        }
+
+        Map<String, Provider> digestProviders = new LinkedHashMap<>();
+        Map<String, Double> digestResults = new LinkedHashMap<>();
+        for (Provider provider : candidates("MessageDigest." + DIGEST_ALGORITHM)) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM, provider);
+                if (!Arrays.equals(expectedDigest, digest.digest(data))) {
+                    continue;
+                }
+                measure(() -> digest.digest(data).length > 0, measurementNanos);
+                digestResults.put(provider.getName(), measure(() -> digest.digest(data).length > 0, measurementNanos));
+                digestProviders.put(provider.getName(), provider);
+            } catch (GeneralSecurityException | RuntimeException e) {
+                // Not usable, left out
+            }
+        }
+
+        if (signatureResults.isEmpty() || digestResults.isEmpty()) {
+            throw new GeneralSecurityException("No provider passed the calibration checks");
+        }
+        ProviderCalibration calibration = new ProviderCalibration(signatureResults, digestResults);
+        CertificateUtils.VERIFY_ENGINES = CertificateUtils.verifyEngines(signatureProviders.get(calibration.signatureProvider));
+        Fingerprints.SHA256 = Fingerprints.sha256Engines(digestProviders.get(calibration.digestProvider));
+        current = calibration;
+        return calibration;
+    }
+
+    /**
+     * Returns the calibration in effect, or null when the default provider order is used.
+     */
+    public static ProviderCalibration current() {
+        return current;
+    }
+
+    /**
+     * Unpins the providers, going back to the default provider order.
+     */
+    public static synchronized void reset() {
+        CertificateUtils.VERIFY_ENGINES = CertificateUtils.verifyEngines(null);
+        Fingerprints.SHA256 = Fingerprints.sha256Engines(null);
+        current = null;
+    }
+
+    public String getSignatureProvider() {
+        return signatureProvider;
+    }
+
+    public double getSignatureOpsPerSecond() {
+        return signatureOpsPerSecond;
+    }
+
+    /**
+     * Returns the measured verifications per second of every eligible provider, by provider name.
+     */
+    public Map<String, Double> getSignatureResults() {
+        return signatureResults;
+    }
+
+    public String getDigestProvider() {
+        return digestProvider;
+    }
+
+    public double getDigestOpsPerSecond() {
+        return digestOpsPerSecond;
+    }
+
+    /**
+     * Returns the measured digests per second of every eligible provider, by provider name.
+     */
+    public Map<String, Double> getDigestResults() {
+        return digestResults;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s (%.0f ops/s, measured %s), %s: %s (%.0f ops/s, measured %s)",
+            SIGNATURE_ALGORITHM, signatureProvider, signatureOpsPerSecond, format(signatureResults),
+            DIGEST_ALGORITHM, digestProvider, digestOpsPerSecond, format(digestResults));
+    }
+
+    private static List<Provider> candidates(String filter) {
+        List<Provider> candidates = new ArrayList<>();
+        Provider[] installed = Security.getProviders(filter);
+        if (installed != null) {
+            candidates.addAll(Arrays.asList(installed));
+        }
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            candidates.add(BouncyCastle.PROVIDER);
+        }
+        return candidates;
+    }
+
+    private static boolean verify(Signature verifier, KeyPair keyPair, byte[] data, byte[] signature) throws GeneralSecurityException {
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update(data);
+        return verifier.verify(signature);
+    }
+
+    private static double measure(Operation operation, long durationNanos) throws GeneralSecurityException {
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        long operations = 0;
+        long now;
+        do {
+            // Checking every result also keeps the work from being optimized away
+            if (!operation.run()) {
+                throw new GeneralSecurityException("Calibration operation failed");
+            }
+            operations++;
+            now = System.nanoTime();
+        } while (now - deadline < 0);
+        return operations * (double) TimeUnit.SECONDS.toNanos(1) / (now - start);
+    }
+
+    private static String format(Map<String, Double> results) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Map.Entry<String, Double> entry : results.entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append('=').append(String.format("%.0f", entry.getValue()));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String fastest(Map<String, Double> results) {
+        String fastest = null;
+        for (Map.Entry<String, Double> entry : results.entrySet()) {
+            if (fastest == null || entry.getValue() > results.get(fastest)) {
+                fastest = entry.getKey();
+            }
+        }
+        return fastest;
+    }
+
+    private interface Operation {
+        boolean run() throws GeneralSecurityException;
+    }
+
+    // An unregistered instance, created only when a calibration runs
+    private static final class BouncyCastle {
+        static final Provider PROVIDER = new BouncyCastleProvider();
+    }
+}
@@ -0,0 +1,154 @@
+package com.omnistrate.licensing.certificate;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import com.omnistrate.licensing.common.Batches;
+import com.omnistrate.licensing.common.InvalidPrivateKeyException;
+import com.omnistrate.licensing.common.InvalidSignatureException;
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.common.SignatureAlgorithm;
+
+/**
+ * Signs licenses with a parsed private key, for issuers producing many envelopes. The signature
+ * algorithm follows the key type: RS256 for RSA, ES256 for P-256 and EdDSA for Ed25519 keys.
+ * <p>
+ * Every thread reuses a signature engine that was initialized with the key once, so signing a
+ * license costs the RSA operation and no key parsing or engine lookup. Instances are thread-safe
+ * and meant to be kept for the lifetime of the key.
+ */
+public final class Signer {
+
+    private final PrivateKey privateKey;
+    private final SignatureAlgorithm algorithm;
+    private final EngineCache<Signature> engines;
+
+    public Signer(PrivateKey privateKey) throws InvalidPrivateKeyException {
+        if (privateKey == null) {
+            throw new IllegalArgumentException("privateKey is required");
+        }
+        this.privateKey = privateKey;
+        this.algorithm = SignatureAlgorithm.forKey(privateKey);
+        if (algorithm == null) {
+            throw new InvalidPrivateKeyException("Unsupported private key type: " + privateKey.getAlgorithm());
+        }
+        // Fails on keys that cannot sign, so the engines created later can always be initialized
+        initSign(newSignature(algorithm), privateKey, algorithm);
+        this.engines = EngineCache.create(() -> {
+            Signature signature = CertificateUtils.newSignature(algorithm);
+            try {
+                signature.initSign(privateKey);
+            } catch (InvalidKeyException e) {
+                throw new IllegalStateException("Private key was accepted before", e);
+            }
+            return signature;
+        });
+    }
+
+    public static Signer fromPem(String keyPEM) throws InvalidPrivateKeyException {
+        return new Signer(CertificateUtils.loadPrivateKeyFromString(keyPEM));
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public byte[] sign(byte[] data) throws InvalidSignatureException {
+        Signature signature;
+        try {
+            signature = engines.acquire();
+        } catch (NoSuchAlgorithmException e) {
+            throw new InvalidSignatureException("Failed to sign data", e);
+        }
+        boolean completed = false;
+        try {
+            // sign() leaves the engine initialized with the key for the next call
+            signature.update(data);
+            byte[] signed = signature.sign();
+            completed = true;
+            return signed;
+        } catch (SignatureException e) {
+            throw new InvalidSignatureException("Failed to sign data", e);
+        } finally {
+            if (!completed) {
+                // Drops any partial update, also after a ProviderException, before the engine is used again
+                try {
+                    signature.initSign(privateKey);
+                } catch (InvalidKeyException | RuntimeException ignored) {
+                    // Accepted by the constructor
+                }
+            }
+            engines.release(signature);
+        }
+    }
+
+    public LicenseEnvelope sign(License license) throws InvalidSignatureException {
+        if (license == null) {
+            throw new IllegalArgumentException("license is required");
+        }
+        // RS256 is left unnamed, so RSA envelopes stay readable by validators that predate the Algorithm field
+        return new LicenseEnvelope(license, sign(license.toBytes()), algorithm == SignatureAlgorithm.RS256 ? null : algorithm);
+    }
+
+    /**
+     * Signs a batch of licenses on the common fork-join pool.
+     *
+     * @see #signAll(Collection, Executor)
+     */
+    public List<LicenseEnvelope> signAll(Collection<License> licenses) throws InvalidSignatureException {
+        return signAll(licenses, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Signs a batch of licenses in parallel on the given executor, split into a few chunks per
+     * available core. The calling thread waits for the whole batch, which fails with the first
+     * signing error.
+     *
+     * @return one envelope per license, in the iteration order of {@code licenses}
+     */
+    public List<LicenseEnvelope> signAll(Collection<License> licenses, Executor executor) throws InvalidSignatureException {
+        List<License> items = new ArrayList<>(licenses);
+        for (License license : items) {
+            if (license == null) {
+                throw new IllegalArgumentException("licenses must not contain null");
+            }
+        }
+
+        LicenseEnvelope[] envelopes = new LicenseEnvelope[items.size()];
+        Batches.runChunks(items.size(), executor, (from, to) -> signAll(items, from, to, envelopes));
+        return Collections.unmodifiableList(Arrays.asList(envelopes));
+    }
+
+    private void signAll(List<License> licenses, int from, int to, LicenseEnvelope[] envelopes) throws InvalidSignatureException {
+        for (int i = from; i < to; i++) {
+            envelopes[i] = sign(licenses.get(i));
+        }
+    }
+
+    private static Signature newSignature(SignatureAlgorithm algorithm) throws InvalidPrivateKeyException {
+        try {
+            return CertificateUtils.newSignature(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new InvalidPrivateKeyException("Failed to create signature: " + algorithm.getJcaName() + " algorithm not found", e);
+        }
+    }
+
+    private static void initSign(Signature signature, PrivateKey privateKey, SignatureAlgorithm algorithm) throws InvalidPrivateKeyException {
+        try {
+            signature.initSign(privateKey);
+        } catch (InvalidKeyException e) {
+            throw new InvalidPrivateKeyException("Private key cannot be used to sign with " + algorithm.getJcaName(), e);
+        }
+    }
+}
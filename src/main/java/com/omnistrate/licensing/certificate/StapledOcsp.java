@@ -0,0 +1,205 @@
+package com.omnistrate.licensing.certificate;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bouncycastle.cert.CertException;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import com.omnistrate.licensing.common.InvalidCertificateException;
+
+/**
+ * Offline verification of stapled OCSP responses.
+ * <p>
+ * A response is accepted when it is signed by the issuer of the certificate, or by a delegated
+ * responder certificate issued by it for OCSP signing, and reports the certificate as good at the
+ * validation time. Verified responses are cached by their SHA-256 fingerprint until their
+ * {@code nextUpdate}, so a staple that is presented again costs a hash and a map lookup. A response
+ * without {@code nextUpdate} has no end of validity and is rejected.
+ */
+final class StapledOcsp {
+
+    private static final String OCSP_SIGNING = "1.3.6.1.5.5.7.3.9";
+    private static final int MAX_CACHED_RESPONSES = 1024;
+
+    private static final ConcurrentHashMap<ByteBuffer, Status> CACHE = new ConcurrentHashMap<>();
+
+    private StapledOcsp() {
+    }
+
+    static void check(X509Certificate cert, X509Certificate issuerCert, byte[] response, Date validationDate) throws InvalidCertificateException {
+        ByteBuffer key = ByteBuffer.wrap(Fingerprints.sha256(response));
+        PublicKey issuerKey = issuerCert.getPublicKey();
+        long now = System.currentTimeMillis();
+
+        Status status = CACHE.get(key);
+        if (status == null || status.validUntilMillis < now || !status.matches(cert, issuerKey)) {
+            status = parse(cert, issuerCert, issuerKey, response, validationDate);
+            if (status.validUntilMillis >= now) {
+                if (CACHE.size() >= MAX_CACHED_RESPONSES) {
+                    evict(now);
+                }
+                CACHE.put(key, status);
+            }
+        }
+        status.check(validationDate.getTime());
+    }
+
+    static int cachedCount() {
+        return CACHE.size();
+    }
+
+    private static Status parse(X509Certificate cert, X509Certificate issuerCert, PublicKey issuerKey, byte[] response, Date validationDate) throws InvalidCertificateException {
+        try {
+            OCSPResp ocspResp = new OCSPResp(response);
+            if (ocspResp.getStatus() != OCSPResp.SUCCESSFUL) {
+                throw new InvalidCertificateException("OCSP response status is not successful: " + ocspResp.getStatus());
+            }
+            Object responseObject = ocspResp.getResponseObject();
+            if (!(responseObject instanceof BasicOCSPResp)) {
+                throw new InvalidCertificateException("OCSP response is not a basic OCSP response");
+            }
+            BasicOCSPResp basic = (BasicOCSPResp) responseObject;
+
+            X509CertificateHolder issuer = new JcaX509CertificateHolder(issuerCert);
+
+            // The issuer signs its own responses, otherwise a responder certificate it issued must be included
+            long validFromMillis = Long.MIN_VALUE;
+            long validUntilMillis = Long.MAX_VALUE;
+            if (!isSignedBy(basic, issuerKey)) {
+                X509Certificate responderCert = findResponder(basic, issuer, issuerKey, validationDate);
+                validFromMillis = responderCert.getNotBefore().getTime();
+                validUntilMillis = responderCert.getNotAfter().getTime();
+            }
+
+            SingleResp single = findSingleResponse(basic, cert, issuer);
+            CertificateStatus certStatus = single.getCertStatus();
+            long revocationMillis = Long.MAX_VALUE;
+            if (certStatus instanceof RevokedStatus) {
+                revocationMillis = ((RevokedStatus) certStatus).getRevocationTime().getTime();
+            } else if (certStatus != CertificateStatus.GOOD) {
+                throw new InvalidCertificateException("OCSP response reports an unknown certificate status");
+            }
+
+            // Without nextUpdate the response would be accepted forever, however old it is
+            Date nextUpdate = single.getNextUpdate();
+            if (nextUpdate == null) {
+                throw new InvalidCertificateException("OCSP response does not specify a nextUpdate");
+            }
+            validFromMillis = Math.max(validFromMillis, single.getThisUpdate().getTime());
+            validUntilMillis = Math.min(validUntilMillis, nextUpdate.getTime());
+            return new Status(issuerKey, cert.getSerialNumber(), validFromMillis, validUntilMillis, revocationMillis);
+        } catch (IOException | OCSPException | CertException | OperatorCreationException | CertificateException | RuntimeException e) {
+            throw new InvalidCertificateException("Failed to verify OCSP response", e);
+        }
+    }
+
+    private static X509Certificate findResponder(BasicOCSPResp basic, X509CertificateHolder issuer, PublicKey issuerKey, Date validationDate) throws InvalidCertificateException, CertException, OperatorCreationException, CertificateException {
+        for (X509CertificateHolder holder : basic.getCerts()) {
+            if (!holder.getIssuer().equals(issuer.getSubject())) {
+                continue;
+            }
+            X509Certificate responderCert = new JcaX509CertificateConverter().getCertificate(holder);
+            if (!holder.isSignatureValid(new JcaContentVerifierProviderBuilder().build(issuerKey))
+                || !holder.isValidOn(validationDate)
+                || !isOcspSigner(responderCert)) {
+                continue;
+            }
+            if (isSignedBy(basic, responderCert.getPublicKey())) {
+                return responderCert;
+            }
+        }
+        throw new InvalidCertificateException("OCSP response is not signed by the issuer or an authorized responder");
+    }
+
+    /**
+     * Whether the response verifies with the key. A key of another type than the response
+     * signature cannot verify it, which BouncyCastle reports by throwing rather than returning false.
+     */
+    private static boolean isSignedBy(BasicOCSPResp basic, PublicKey key) {
+        try {
+            return basic.isSignatureValid(new JcaContentVerifierProviderBuilder().build(key));
+        } catch (OCSPException | OperatorCreationException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOcspSigner(X509Certificate responderCert) throws CertificateParsingException {
+        List<String> extendedKeyUsage = responderCert.getExtendedKeyUsage();
+        return extendedKeyUsage != null && extendedKeyUsage.contains(OCSP_SIGNING);
+    }
+
+    private static SingleResp findSingleResponse(BasicOCSPResp basic, X509Certificate cert, X509CertificateHolder issuer) throws InvalidCertificateException, OCSPException, OperatorCreationException {
+        DigestCalculatorProvider digestCalculatorProvider = new JcaDigestCalculatorProviderBuilder().build();
+        BigInteger serial = cert.getSerialNumber();
+        for (SingleResp single : basic.getResponses()) {
+            if (single.getCertID().getSerialNumber().equals(serial) && single.getCertID().matchesIssuer(issuer, digestCalculatorProvider)) {
+                return single;
+            }
+        }
+        throw new InvalidCertificateException("OCSP response does not cover the certificate");
+    }
+
+    private static void evict(long now) {
+        CACHE.values().removeIf(status -> status.validUntilMillis < now);
+        Iterator<Map.Entry<ByteBuffer, Status>> it = CACHE.entrySet().iterator();
+        while (CACHE.size() >= MAX_CACHED_RESPONSES && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Status {
+        private final PublicKey issuerKey;
+        private final BigInteger serial;
+        private final long validFromMillis;
+        private final long validUntilMillis;
+        private final long revocationMillis;
+
+        Status(PublicKey issuerKey, BigInteger serial, long validFromMillis, long validUntilMillis, long revocationMillis) {
+            this.issuerKey = issuerKey;
+            this.serial = serial;
+            this.validFromMillis = validFromMillis;
+            this.validUntilMillis = validUntilMillis;
+            this.revocationMillis = revocationMillis;
+        }
+
+        boolean matches(X509Certificate cert, PublicKey key) {
+            return serial.equals(cert.getSerialNumber()) && issuerKey.equals(key);
+        }
+
+        void check(long validationMillis) throws InvalidCertificateException {
+            if (validationMillis < validFromMillis) {
+                throw new InvalidCertificateException("OCSP response is not valid yet");
+            }
+            if (validationMillis > validUntilMillis) {
+                throw new InvalidCertificateException("OCSP response is no longer valid");
+            }
+            if (revocationMillis <= validationMillis) {
+                throw new InvalidCertificateException("Certificate has been revoked according to its OCSP response");
+            }
+        }
+    }
+}
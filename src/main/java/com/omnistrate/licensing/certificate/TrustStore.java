@@ -0,0 +1,136 @@
+package com.omnistrate.licensing.certificate;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertStore;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.omnistrate.licensing.common.InvalidCertificateException;
+
+/**
+ * Immutable, pre-parsed trust material used to build and validate certificate paths.
+ * <p>
+ * The default instance holds the ISRG Root X1 trust anchor and the Let's Encrypt R10-R13
+ * intermediates from {@link Certificates}. It is parsed once per classloader on first use and
+ * shared by all threads. Custom instances can be created with {@link Builder}.
+ */
+public final class TrustStore {
+
+    private final Set<TrustAnchor> trustAnchors;
+    private final List<X509Certificate> intermediateCerts;
+    private final CertStore certStore;
+    private final CrlStore crlStore;
+    private final boolean stapledOcspRequired;
+
+    private TrustStore(Set<TrustAnchor> trustAnchors, List<X509Certificate> intermediateCerts, CrlStore crlStore, boolean stapledOcspRequired) throws InvalidCertificateException {
+        if (trustAnchors.isEmpty()) {
+            throw new InvalidCertificateException("Trust store requires at least one trust anchor");
+        }
+        this.trustAnchors = Collections.unmodifiableSet(trustAnchors);
+        this.intermediateCerts = Collections.unmodifiableList(intermediateCerts);
+        this.crlStore = crlStore;
+        this.stapledOcspRequired = stapledOcspRequired;
+        try {
+            this.certStore = CertStore.getInstance("Collection", new CollectionCertStoreParameters(this.intermediateCerts));
+        } catch (InvalidAlgorithmParameterException | NoSuchAlgorithmException e) {
+            throw new InvalidCertificateException("Failed to create intermediate certificate store", e);
+        }
+    }
+
+    public static TrustStore getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public Set<TrustAnchor> getTrustAnchors() {
+        return trustAnchors;
+    }
+
+    public List<X509Certificate> getIntermediateCerts() {
+        return intermediateCerts;
+    }
+
+    public CertStore getCertStore() {
+        return certStore;
+    }
+
+    /**
+     * Returns the revocation lists checked after path validation, or null when revocation is not checked.
+     */
+    public CrlStore getCrlStore() {
+        return crlStore;
+    }
+
+    /**
+     * Returns whether certificates are rejected when no stapled OCSP response is presented with them.
+     */
+    public boolean isStapledOcspRequired() {
+        return stapledOcspRequired;
+    }
+
+    private static final class DefaultHolder {
+        private static final TrustStore INSTANCE = createDefault();
+
+        private static TrustStore createDefault() {
+            try {
+                return new Builder()
+                    .trustAnchor(CertificateUtils.loadCertificateFromString(Certificates.ISRGROOTX1))
+                    // Let's Encrypt intermediates are NOT trust anchors - they're only available for building the path to the root
+                    .intermediateCert(CertificateUtils.loadCertificateFromString(Certificates.R10))
+                    .intermediateCert(CertificateUtils.loadCertificateFromString(Certificates.R11))
+                    .intermediateCert(CertificateUtils.loadCertificateFromString(Certificates.R12))
+                    .intermediateCert(CertificateUtils.loadCertificateFromString(Certificates.R13))
+                    .build();
+            } catch (InvalidCertificateException e) {
+                throw new IllegalStateException("Failed to load built-in trust store certificates", e);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final Set<TrustAnchor> trustAnchors = new HashSet<>();
+        private final List<X509Certificate> intermediateCerts = new ArrayList<>();
+        private CrlStore crlStore;
+        private boolean stapledOcspRequired;
+
+        public Builder trustAnchor(X509Certificate rootCert) {
+            this.trustAnchors.add(new TrustAnchor(rootCert, null));
+            return this;
+        }
+
+        public Builder intermediateCert(X509Certificate intermediateCert) {
+            this.intermediateCerts.add(intermediateCert);
+            return this;
+        }
+
+        public Builder intermediateCerts(List<X509Certificate> intermediateCerts) {
+            this.intermediateCerts.addAll(intermediateCerts);
+            return this;
+        }
+
+        public Builder crlStore(CrlStore crlStore) {
+            this.crlStore = crlStore;
+            return this;
+        }
+
+        /**
+         * Rejects certificates validated without a stapled OCSP response, so a response cannot be
+         * stripped from a license envelope to skip the revocation check.
+         */
+        public Builder requireStapledOcsp(boolean stapledOcspRequired) {
+            this.stapledOcspRequired = stapledOcspRequired;
+            return this;
+        }
+
+        public TrustStore build() throws InvalidCertificateException {
+            return new TrustStore(new HashSet<>(trustAnchors), new ArrayList<>(intermediateCerts), crlStore, stapledOcspRequired);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.omnistrate.licensing.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Splits the batch APIs of the SDK, such as batch validation and batch signing, into parallel
+ * chunks.
+ * <p>
+ * A batch is split into a few chunks per available thread of the executor, of at least
+ * {@link #MIN_CHUNK_SIZE} items, so that every task amortizes its scheduling cost over several
+ * cryptographic operations. Batches that fit in one chunk run on the calling thread.
+ */
+public final class Batches {
+
+    public static final int MIN_CHUNK_SIZE = 16;
+    public static final int CHUNKS_PER_THREAD = 4;
+
+    private Batches() {
+    }
+
+    /**
+     * Work on the items of a batch from index {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    public interface Chunk<E extends Exception> {
+        void run(int from, int to) throws E;
+    }
+
+    /**
+     * Runs the chunks of a batch of {@code size} items on the executor and waits for all of them.
+     * The first exception thrown by a chunk is rethrown as is.
+     */
+    public static <E extends Exception> void runChunks(int size, Executor executor, Chunk<E> chunk) throws E {
+        int parallelism = executor instanceof ForkJoinPool
+            ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (size + parallelism * CHUNKS_PER_THREAD - 1) / (parallelism * CHUNKS_PER_THREAD));
+
+        if (size <= chunkSize) {
+            chunk.run(0, size);
+            return;
+        }
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, size);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    chunk.run(start, end);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // Chunks only throw unchecked exceptions or E
+            @SuppressWarnings("unchecked")
+            E failure = (E) cause;
+            throw failure;
+        }
+    }
+}
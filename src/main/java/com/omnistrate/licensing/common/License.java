@@ -1,10 +1,13 @@
 package com.omnistrate.licensing.common;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
+import java.io.IOException;
+import java.time.Clock;
 import java.time.ZonedDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
@@ -13,9 +16,7 @@ import java.util.UUID;
 
 public class License {
 
-    private static final ObjectMapper mapper = new ObjectMapper()
-        .setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE) 
-        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    static final JsonFactory JSON_FACTORY = new JsonFactory();
     
     @JsonProperty("ID")
     private String id;
@@ -44,6 +45,10 @@ public class License {
     @JsonProperty("OrganizationID")
     private String organizationID;
 
+    // Parsed forms of creationTime and expirationTime, memoized on first use and reset when the strings change
+    private volatile ParsedTime parsedCreationTime;
+    private volatile ParsedTime parsedExpirationTime;
+
     public License() {
     }
 
@@ -96,64 +101,146 @@ public class License {
     }
 
     public ZonedDateTime getExpirationTime() throws DateTimeParseException {
-        return parseDate(expirationTime);
+        ParsedTime parsed = getParsedExpirationTime();
+        if (parsed == ParsedTime.INVALID) {
+            // Re-parse to surface the original parse error
+            return parseDate(expirationTime);
+        }
+        return parsed.time;
+    }
+
+    public long getExpirationTimeMillis() throws DateTimeParseException {
+        ParsedTime parsed = getParsedExpirationTime();
+        if (parsed == ParsedTime.INVALID) {
+            return parseDate(expirationTime).toInstant().toEpochMilli();
+        }
+        return parsed.epochMillis;
     }
 
     public ZonedDateTime getCreationTime() throws DateTimeParseException {
-        return parseDate(creationTime);
+        ParsedTime parsed = getParsedCreationTime();
+        if (parsed == ParsedTime.INVALID) {
+            return parseDate(creationTime);
+        }
+        return parsed.time;
+    }
+
+    private ParsedTime getParsedExpirationTime() {
+        ParsedTime parsed = parsedExpirationTime;
+        if (parsed == null) {
+            parsed = ParsedTime.parse(expirationTime);
+            parsedExpirationTime = parsed;
+        }
+        return parsed;
+    }
+
+    private ParsedTime getParsedCreationTime() {
+        ParsedTime parsed = parsedCreationTime;
+        if (parsed == null) {
+            parsed = ParsedTime.parse(creationTime);
+            parsedCreationTime = parsed;
+        }
+        return parsed;
     }
 
     public boolean isValid(String organizationID, String productPlanUniqueID, String instanceID) throws InvalidLicenseException {
+        ValidationResult result = check(organizationID, productPlanUniqueID, instanceID);
+        if (!result.isValid()) {
+            throw new InvalidLicenseException(failureMessage(result.getReason(), organizationID, productPlanUniqueID, instanceID));
+        }
+        return true;
+    }
+
+    /**
+     * Same checks as {@link #isValid(String, String, String)}, reported as a result instead of an exception.
+     */
+    public ValidationResult check(String organizationID, String productPlanUniqueID, String instanceID) {
         if (Utils.isNullOrEmpty(id) || Utils.isNullOrEmpty(creationTime) || Utils.isNullOrEmpty(expirationTime)) {
-            throw new InvalidLicenseException("Missing required fields");
+            return ValidationResult.failure(ValidationResult.Reason.MISSING_REQUIRED_FIELDS);
         }
 
         if (!Utils.isNullOrEmpty(organizationID)) {
             if (!organizationID.equals(this.organizationID)) {
-                throw new InvalidLicenseException("Invalid organization ID expected " + this.organizationID + " got " + organizationID);
+                return ValidationResult.failure(ValidationResult.Reason.ORGANIZATION_MISMATCH);
             }
         }
 
         if (!Utils.isNullOrEmpty(productPlanUniqueID)) {
             if (!productPlanUniqueID.equals("" + this.productPlanUniqueID)) {
-                throw new InvalidLicenseException("Invalid product plan unique id expected " + this.productPlanUniqueID + " got " + productPlanUniqueID);
+                return ValidationResult.failure(ValidationResult.Reason.PRODUCT_PLAN_MISMATCH);
             }
         }
 
         if (!Utils.isNullOrEmpty(instanceID)) {
             if (!instanceID.equals("" + this.instanceID)) {
-                throw new InvalidLicenseException("Invalid instance ID expected " + this.instanceID + " got " + instanceID);
+                return ValidationResult.failure(ValidationResult.Reason.INSTANCE_MISMATCH);
             }
         }
 
-        try {
-            getCreationTime();
-        } catch (DateTimeParseException e) {
-            throw new InvalidLicenseException("Invalid creation time");
+        if (getParsedCreationTime() == ParsedTime.INVALID) {
+            return ValidationResult.failure(ValidationResult.Reason.INVALID_CREATION_TIME);
         }
-        try {
-            getExpirationTime();
-        } catch (DateTimeParseException e) {
-            throw new InvalidLicenseException("Invalid expiration time");
+        if (getParsedExpirationTime() == ParsedTime.INVALID) {
+            return ValidationResult.failure(ValidationResult.Reason.INVALID_EXPIRATION_TIME);
+        }
+        return ValidationResult.valid();
+    }
+
+    private String failureMessage(ValidationResult.Reason reason, String organizationID, String productPlanUniqueID, String instanceID) {
+        switch (reason) {
+            case MISSING_REQUIRED_FIELDS:
+                return "Missing required fields";
+            case ORGANIZATION_MISMATCH:
+                return "Invalid organization ID expected " + this.organizationID + " got " + organizationID;
+            case PRODUCT_PLAN_MISMATCH:
+                return "Invalid product plan unique id expected " + this.productPlanUniqueID + " got " + productPlanUniqueID;
+            case INSTANCE_MISMATCH:
+                return "Invalid instance ID expected " + this.instanceID + " got " + instanceID;
+            case INVALID_CREATION_TIME:
+                return "Invalid creation time";
+            case INVALID_EXPIRATION_TIME:
+                return "Invalid expiration time";
+            default:
+                return "Invalid license";
         }
-        return true;
     }
 
     public boolean isExpired() {
-        return isExpiredAt(ZonedDateTime.now(ZoneOffset.UTC));
+        return isExpiredAt(System.currentTimeMillis());
     }
 
     public boolean isExpiredAt(ZonedDateTime currentTime) {
-        try {
-            return currentTime.isAfter(getExpirationTime());
-        } catch (DateTimeParseException e) {
-            return true;
+        ParsedTime parsed = getParsedExpirationTime();
+        return parsed == ParsedTime.INVALID || currentTime.isAfter(parsed.time);
+    }
+
+    public boolean isExpiredAt(long currentTimeMillis) {
+        ParsedTime parsed = getParsedExpirationTime();
+        return parsed == ParsedTime.INVALID || currentTimeMillis > parsed.epochMillis;
+    }
+
+    public boolean isExpiredAt(Clock clock) {
+        return isExpiredAt(clock.millis());
+    }
+
+    // Swaps the claim strings for equal instances shared across licenses, see LicenseRegistry
+    void shareClaims(String organizationID, String productPlanUniqueID, String instanceID) {
+        if (organizationID.equals(this.organizationID)) {
+            this.organizationID = organizationID;
+        }
+        if (productPlanUniqueID.equals(this.productPlanUniqueID)) {
+            this.productPlanUniqueID = productPlanUniqueID;
+        }
+        if (instanceID.equals(this.instanceID)) {
+            this.instanceID = instanceID;
         }
     }
 
     public void renew(ZonedDateTime expirationTime) {
         this.creationTime = formatDate(ZonedDateTime.now(ZoneOffset.UTC));
         this.expirationTime = formatDate(expirationTime);
+        this.parsedCreationTime = null;
+        this.parsedExpirationTime = null;
         this.version++;
     }
 
@@ -181,6 +268,109 @@ public class License {
     }
 
     public static License parse(String s) throws Exception {
-        return mapper.readValue(s, License.class);
+        try (JsonParser parser = JSON_FACTORY.createParser(s)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "License must be a JSON object");
+            }
+            License license = read(parser);
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after License");
+            }
+            return license;
+        }
+    }
+
+    // Reads the fields of a License object, the parser must be positioned on its START_OBJECT.
+    // Unknown fields are skipped, values of the wrong shape are rejected.
+    static License read(JsonParser parser) throws IOException {
+        License license = new License();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "ID":
+                    license.id = readString(parser, token);
+                    break;
+                case "CreationTime":
+                    license.creationTime = readString(parser, token);
+                    break;
+                case "ExpirationTime":
+                    license.expirationTime = readString(parser, token);
+                    break;
+                case "Description":
+                    license.description = readString(parser, token);
+                    break;
+                case "InstanceID":
+                    license.instanceID = readString(parser, token);
+                    break;
+                case "SubscriptionID":
+                    license.subscriptionID = readString(parser, token);
+                    break;
+                case "ProductPlanUniqueID":
+                    license.productPlanUniqueID = readString(parser, token);
+                    break;
+                case "OrganizationID":
+                    license.organizationID = readString(parser, token);
+                    break;
+                case "Version":
+                    license.version = readLong(parser, token);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return license;
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a string value for License." + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private static long readLong(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getValueAsLong();
+            case VALUE_NULL:
+                return 0;
+            case VALUE_STRING:
+                try {
+                    return Long.parseLong(parser.getText().trim());
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(parser, "Expected a numeric value for License." + parser.currentName(), e);
+                }
+            default:
+                throw new JsonParseException(parser, "Expected a numeric value for License." + parser.currentName());
+        }
+    }
+
+    private static final class ParsedTime {
+        private static final ParsedTime INVALID = new ParsedTime(null, Long.MIN_VALUE);
+
+        private final ZonedDateTime time;
+        private final long epochMillis;
+
+        private ParsedTime(ZonedDateTime time, long epochMillis) {
+            this.time = time;
+            this.epochMillis = epochMillis;
+        }
+
+        static ParsedTime parse(String date) {
+            if (date == null) {
+                return INVALID;
+            }
+            try {
+                ZonedDateTime time = ZonedDateTime.parse(date, DateTimeFormatter.ISO_ZONED_DATE_TIME);
+                return new ParsedTime(time, time.toInstant().toEpochMilli());
+            } catch (DateTimeParseException | ArithmeticException e) {
+                return INVALID;
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+package com.omnistrate.licensing.common;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Concurrent registry of validated licenses keyed by organization, product plan and instance.
+ * <p>
+ * Lookups by the full key are lock-free reads of a hash map. A sorted secondary index answers the
+ * prefix queries, all licenses of an organization or of an organization and product plan; it is
+ * updated together with the primary map but read without locking, so a query running during a
+ * concurrent update may miss that single change. A license only replaces the registered one for
+ * the same key when its {@code Version} is higher, so renewals arriving out of order never roll
+ * a tenant back.
+ * <p>
+ * Organization and product plan IDs are shared across all licenses of the registry, and the
+ * claim strings of every registered license are replaced with the shared instances. A shared ID
+ * is dropped with the last license that references it. Licenses are not validated by the
+ * registry, only register licenses returned by {@code Validator}.
+ */
+public final class LicenseRegistry {
+
+    private final ConcurrentHashMap<Key, License> licenses = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Key> index = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, SharedId> sharedIds = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the license unless a license with the same or a higher version is already
+     * registered for its organization, product plan and instance.
+     *
+     * @return whether the license is now the registered one
+     */
+    public boolean register(License license) {
+        if (license == null) {
+            throw new IllegalArgumentException("license is required");
+        }
+        // The shared IDs are referenced by the new key, and released again when the key was already registered
+        Key key = new Key(acquire(license.getOrganizationID()), acquire(license.getProductPlanUniqueID()), nonNull(license.getInstanceID()));
+        boolean[] added = new boolean[1];
+        License registered = licenses.compute(key, (k, existing) -> {
+            added[0] = existing == null;
+            if (existing != null && existing != license && existing.getVersion() >= license.getVersion()) {
+                return existing;
+            }
+            // A renewal reuses the instance ID string of the license it replaces, which is the one held by the map key
+            license.shareClaims(k.organizationID, k.productPlanUniqueID, existing != null ? existing.getInstanceID() : k.instanceID);
+            index.add(k);
+            return license;
+        });
+        if (!added[0]) {
+            release(key);
+        }
+        return registered == license;
+    }
+
+    public License get(String organizationID, String productPlanUniqueID, String instanceID) {
+        return licenses.get(new Key(nonNull(organizationID), nonNull(productPlanUniqueID), nonNull(instanceID)));
+    }
+
+    public boolean isLicensed(String organizationID, String productPlanUniqueID, String instanceID) {
+        return isLicensed(organizationID, productPlanUniqueID, instanceID, System.currentTimeMillis());
+    }
+
+    public boolean isLicensed(String organizationID, String productPlanUniqueID, String instanceID, long currentTimeMillis) {
+        License license = get(organizationID, productPlanUniqueID, instanceID);
+        return license != null && !license.isExpiredAt(currentTimeMillis);
+    }
+
+    /**
+     * Returns whether any instance of the organization holds an unexpired license for the product plan.
+     */
+    public boolean isLicensed(String organizationID, String productPlanUniqueID, long currentTimeMillis) {
+        String org = nonNull(organizationID);
+        String plan = nonNull(productPlanUniqueID);
+        for (Key key : index.tailSet(new Key(org, plan, ""))) {
+            if (!key.organizationID.equals(org) || !key.productPlanUniqueID.equals(plan)) {
+                break;
+            }
+            License license = licenses.get(key);
+            if (license != null && !license.isExpiredAt(currentTimeMillis)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<License> getByOrganization(String organizationID) {
+        String org = nonNull(organizationID);
+        List<License> result = new ArrayList<>();
+        for (Key key : index.tailSet(new Key(org, "", ""))) {
+            if (!key.organizationID.equals(org)) {
+                break;
+            }
+            addIfPresent(result, key);
+        }
+        return result;
+    }
+
+    public List<License> getByOrganization(String organizationID, String productPlanUniqueID) {
+        String org = nonNull(organizationID);
+        String plan = nonNull(productPlanUniqueID);
+        List<License> result = new ArrayList<>();
+        for (Key key : index.tailSet(new Key(org, plan, ""))) {
+            if (!key.organizationID.equals(org) || !key.productPlanUniqueID.equals(plan)) {
+                break;
+            }
+            addIfPresent(result, key);
+        }
+        return result;
+    }
+
+    public License remove(String organizationID, String productPlanUniqueID, String instanceID) {
+        Key key = new Key(nonNull(organizationID), nonNull(productPlanUniqueID), nonNull(instanceID));
+        License[] removed = new License[1];
+        licenses.computeIfPresent(key, (k, existing) -> {
+            removed[0] = existing;
+            index.remove(k);
+            return null;
+        });
+        if (removed[0] != null) {
+            release(key);
+        }
+        return removed[0];
+    }
+
+    /**
+     * Removes every license expired at the given time.
+     *
+     * @return the number of removed licenses
+     */
+    public int removeExpired(long currentTimeMillis) {
+        int removed = 0;
+        Iterator<Map.Entry<Key, License>> it = licenses.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, License> entry = it.next();
+            License expired = entry.getValue();
+            if (!expired.isExpiredAt(currentTimeMillis)) {
+                continue;
+            }
+            boolean[] removedEntry = new boolean[1];
+            // Leaves a renewal registered since the iteration read the entry in place
+            licenses.computeIfPresent(entry.getKey(), (k, existing) -> {
+                if (existing != expired) {
+                    return existing;
+                }
+                index.remove(k);
+                removedEntry[0] = true;
+                return null;
+            });
+            if (removedEntry[0]) {
+                release(entry.getKey());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return licenses.size();
+    }
+
+    private void addIfPresent(List<License> result, Key key) {
+        License license = licenses.get(key);
+        if (license != null) {
+            result.add(license);
+        }
+    }
+
+    int sharedIdCount() {
+        return sharedIds.size();
+    }
+
+    private String acquire(String id) {
+        SharedId shared = sharedIds.compute(nonNull(id), (value, existing) -> {
+            SharedId result = existing != null ? existing : new SharedId(value);
+            result.references++;
+            return result;
+        });
+        return shared.value;
+    }
+
+    private void release(Key key) {
+        release(key.organizationID);
+        release(key.productPlanUniqueID);
+    }
+
+    private void release(String id) {
+        sharedIds.computeIfPresent(id, (value, existing) -> --existing.references == 0 ? null : existing);
+    }
+
+    private static String nonNull(String id) {
+        return id == null ? "" : id;
+    }
+
+    // Only updated inside sharedIds.compute, which serializes the updates of one ID
+    private static final class SharedId {
+        private final String value;
+        private int references;
+
+        SharedId(String value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private final String organizationID;
+        private final String productPlanUniqueID;
+        private final String instanceID;
+        private final int hash;
+
+        Key(String organizationID, String productPlanUniqueID, String instanceID) {
+            this.organizationID = organizationID;
+            this.productPlanUniqueID = productPlanUniqueID;
+            this.instanceID = instanceID;
+            this.hash = 31 * (31 * organizationID.hashCode() + productPlanUniqueID.hashCode()) + instanceID.hashCode();
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int result = organizationID.compareTo(other.organizationID);
+            if (result == 0) {
+                result = productPlanUniqueID.compareTo(other.productPlanUniqueID);
+            }
+            if (result == 0) {
+                result = instanceID.compareTo(other.instanceID);
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                && instanceID.equals(other.instanceID)
+                && productPlanUniqueID.equals(other.productPlanUniqueID)
+                && organizationID.equals(other.organizationID);
+        }
+    }
+}
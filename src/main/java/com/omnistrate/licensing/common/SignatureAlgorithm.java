@@ -0,0 +1,91 @@
+package com.omnistrate.licensing.common;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.interfaces.ECKey;
+
+/**
+ * Signature algorithms of license envelopes. The identifiers borrow the JOSE names, but envelopes
+ * are not JWS: signatures are encoded as produced by the JCA engine, so ES256 signatures are DER
+ * encoded ECDSA-Sig-Value structures rather than the fixed-length R||S of JWS, and cannot be
+ * verified with a JOSE library. The algorithm is always determined by the key of the signing
+ * certificate; an algorithm recorded in an envelope must match it.
+ */
+public enum SignatureAlgorithm {
+
+    /**
+     * RSASSA-PKCS1-v1_5 with SHA-256, the default and the algorithm of envelopes that do not name one.
+     */
+    RS256("RS256", "SHA256withRSA"),
+
+    /**
+     * ECDSA on the P-256 curve with SHA-256. Signatures are DER encoded, between 8 and 72 bytes
+     * long, not the 64-byte R||S concatenation JWS uses for ES256.
+     */
+    ES256("ES256", "SHA256withECDSA"),
+
+    /**
+     * Ed25519.
+     */
+    EdDSA("EdDSA", "Ed25519");
+
+    // Group order of the P-256 curve
+    private static final BigInteger P256_ORDER = new BigInteger("FFFFFFFF00000000FFFFFFFFFFFFFFFFBCE6FAADA7179E84F3B9CAC2FC632551", 16);
+
+    private final String identifier;
+    private final String jcaName;
+
+    SignatureAlgorithm(String identifier, String jcaName) {
+        this.identifier = identifier;
+        this.jcaName = jcaName;
+    }
+
+    /**
+     * Returns the identifier recorded in envelopes.
+     */
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Returns the JCA standard name of the signature engine.
+     */
+    public String getJcaName() {
+        return jcaName;
+    }
+
+    /**
+     * Returns the algorithm for an envelope identifier, or null when it is not known.
+     */
+    public static SignatureAlgorithm fromIdentifier(String identifier) {
+        for (SignatureAlgorithm algorithm : values()) {
+            if (algorithm.identifier.equals(identifier)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the algorithm that signs or verifies with the key, or null when the key type is not
+     * supported. EC keys are only supported on the P-256 curve.
+     */
+    public static SignatureAlgorithm forKey(Key key) {
+        switch (key.getAlgorithm()) {
+            case "RSA":
+                return RS256;
+            case "EC":
+                if (key instanceof ECKey && !P256_ORDER.equals(((ECKey) key).getParams().getOrder())) {
+                    return null;
+                }
+                return ES256;
+            case "Ed25519":
+            case "EdDSA":
+            // Before Java 15 the JDK parses Ed25519 certificate keys without naming the algorithm
+            case "1.3.101.112":
+                return EdDSA;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.omnistrate.licensing.common;
+
+/**
+ * Outcome of a license validation that does not throw.
+ * <p>
+ * Results without a cause are shared immutable instances, one per reason, so a rejected license
+ * costs no allocation and no stack trace capture. Only failures raised by an underlying library,
+ * such as a malformed envelope or a signature engine error, carry the original exception.
+ */
+public final class ValidationResult {
+
+    public enum Reason {
+        VALID,
+        MISSING_CERTIFICATE,
+        MISSING_ENVELOPE,
+        MALFORMED_ENVELOPE,
+        INVALID_ENVELOPE,
+        MISSING_REQUIRED_FIELDS,
+        ORGANIZATION_MISMATCH,
+        PRODUCT_PLAN_MISMATCH,
+        INSTANCE_MISMATCH,
+        INVALID_CREATION_TIME,
+        INVALID_EXPIRATION_TIME,
+        EXPIRED,
+        SIGNATURE_MISMATCH,
+        SIGNATURE_ERROR
+    }
+
+    private static final ValidationResult[] SHARED;
+
+    static {
+        Reason[] reasons = Reason.values();
+        SHARED = new ValidationResult[reasons.length];
+        for (Reason reason : reasons) {
+            SHARED[reason.ordinal()] = new ValidationResult(reason, null);
+        }
+    }
+
+    private final Reason reason;
+    private final Throwable cause;
+
+    private ValidationResult(Reason reason, Throwable cause) {
+        this.reason = reason;
+        this.cause = cause;
+    }
+
+    public static ValidationResult valid() {
+        return SHARED[Reason.VALID.ordinal()];
+    }
+
+    public static ValidationResult failure(Reason reason) {
+        if (reason == null || reason == Reason.VALID) {
+            throw new IllegalArgumentException("failure reason is required");
+        }
+        return SHARED[reason.ordinal()];
+    }
+
+    public static ValidationResult failure(Reason reason, Throwable cause) {
+        if (cause == null) {
+            return failure(reason);
+        }
+        if (reason == null || reason == Reason.VALID) {
+            throw new IllegalArgumentException("failure reason is required");
+        }
+        return new ValidationResult(reason, cause);
+    }
+
+    public boolean isValid() {
+        return reason == Reason.VALID;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the exception behind this failure, or null when the failure was detected by the
+     * validation itself.
+     */
+    public Throwable getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        // The cause message may quote parts of the untrusted input, keep it out of the description
+        return reason.name();
+    }
+}
@@ -0,0 +1,165 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.common.ValidationResult;
+
+import java.io.Closeable;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link Validator} operations on a bounded pool of worker threads and returns their results
+ * as {@link CompletableFuture}s, so callers on event-loop threads never block on parsing,
+ * cryptography or file reads.
+ * <p>
+ * At most {@code queueCapacity} operations wait for a worker. Once the queue is full new
+ * operations are not queued, their future completes immediately with a
+ * {@link RejectedExecutionException}. Failed validations complete the future with the exception
+ * the synchronous method would have thrown. Dependent stages attached without an executor run on
+ * the worker thread, attach them with the {@code *Async} methods to run them elsewhere.
+ */
+public class AsyncValidator implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final Validator validator;
+    private final ThreadPoolExecutor executor;
+
+    private AsyncValidator(Builder builder) {
+        this.validator = builder.validator;
+        this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(builder.queueCapacity),
+            ValidationThreads.daemonThreadFactory("omnistrate-license-validator"),
+            new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public CompletableFuture<ValidationResult> checkLicense(LicenseEnvelope envelope, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().checkLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime));
+    }
+
+    public CompletableFuture<ValidationResult> checkLicenseBytes(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().checkLicenseBytes(envelopeBytes, organizationID, productPlanUniqueID, instanceID, currentTime));
+    }
+
+    public CompletableFuture<ValidationResult> checkLicenseBase64(String envelopeBase64, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().checkLicenseBase64(envelopeBase64, organizationID, productPlanUniqueID, instanceID, currentTime));
+    }
+
+    public CompletableFuture<Boolean> validateLicense(LicenseEnvelope envelope, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime));
+    }
+
+    public CompletableFuture<Boolean> validateLicenseBytes(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().validateLicenseBytes(envelopeBytes, organizationID, productPlanUniqueID, instanceID, currentTime));
+    }
+
+    public CompletableFuture<Boolean> validateLicenseBase64(String envelopeBase64, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().validateLicenseBase64(envelopeBase64, organizationID, productPlanUniqueID, instanceID, currentTime));
+    }
+
+    public CompletableFuture<Boolean> validateCertificate(String certificateDomain, ZonedDateTime currentTime) {
+        return submit(() -> requireValidator().validateCertificate(certificateDomain, currentTime));
+    }
+
+    public CompletableFuture<Boolean> validateCertificate(String certificateDomain, ZonedDateTime currentTime, byte[] ocspResponse) {
+        return submit(() -> requireValidator().validateCertificate(certificateDomain, currentTime, ocspResponse));
+    }
+
+    /**
+     * Runs {@link Validator#validateLicenseWithOptions(ValidationOptions)}, including its file reads,
+     * on a worker thread.
+     */
+    public CompletableFuture<Boolean> validateLicenseWithOptions(ValidationOptions options) {
+        return submit(() -> Validator.validateLicenseWithOptions(options));
+    }
+
+    /**
+     * Returns the number of operations waiting for a worker thread.
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting operations, the queued ones still run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    <T> CompletableFuture<T> submit(ValidationTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // Cancelled while queued
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    // Errors too, such as a LinkageError from a provider, or callers would wait forever
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private Validator requireValidator() {
+        if (validator == null) {
+            throw new IllegalStateException("validator is required for this operation");
+        }
+        return validator;
+    }
+
+    interface ValidationTask<T> {
+        T call() throws Exception;
+    }
+
+    public static class Builder {
+
+        private Validator validator;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        /**
+         * Sets the validator used by the license and certificate operations. Not needed for
+         * {@link AsyncValidator#validateLicenseWithOptions(ValidationOptions)}.
+         */
+        public Builder validator(Validator validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public AsyncValidator build() {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("threads must be positive");
+            }
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("queueCapacity must be positive");
+            }
+            return new AsyncValidator(this);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.certificate.CrlStore;
+import com.omnistrate.licensing.certificate.TrustStore;
+import com.omnistrate.licensing.common.InvalidCertificateException;
+
+import java.security.cert.Certificate;
+import java.security.cert.PKIXCertPathBuilderResult;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memoizes successful certificate path validations.
+ * <p>
+ * Entries are keyed by the SHA-256 fingerprint of the signing certificate and its intermediates,
+ * the certificate domain and the trust store. An entry is only reused while the validation time
+ * falls inside the validity window of every certificate in the built path, and for at most the
+ * configured TTL after it was recorded. When the trust store checks revocation, the window is also
+ * narrowed to the dates the revocation lists accept the path at, see
+ * {@link CrlStore#getValidityWindow}, and an entry is dropped as soon as the lists are reloaded.
+ */
+public class CertificateValidationCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(15);
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private static final CertificateValidationCache DEFAULT = new CertificateValidationCache(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public CertificateValidationCache(Duration ttl, int maxEntries) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    public static CertificateValidationCache getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isValid(byte[] chainFingerprint, String certificateDomain, TrustStore trustStore, long currentTimeMillis) {
+        return lookup(chainFingerprint, certificateDomain, trustStore, currentTimeMillis) != null;
+    }
+
+    /**
+     * Returns the issuer of the signing certificate in the cached path, or null when there is no
+     * usable entry. Used to check a stapled OCSP response without building the path again.
+     */
+    public X509Certificate getValidatedIssuer(byte[] chainFingerprint, String certificateDomain, TrustStore trustStore, long currentTimeMillis) {
+        Entry entry = lookup(chainFingerprint, certificateDomain, trustStore, currentTimeMillis);
+        return entry == null ? null : entry.issuerCert;
+    }
+
+    private Entry lookup(byte[] chainFingerprint, String certificateDomain, TrustStore trustStore, long currentTimeMillis) {
+        Key key = new Key(chainFingerprint, certificateDomain, trustStore);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime()) || entry.crlGeneration != crlGeneration(trustStore)) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return currentTimeMillis >= entry.notBeforeMillis && currentTimeMillis <= entry.notAfterMillis ? entry : null;
+    }
+
+    public void put(byte[] chainFingerprint, String certificateDomain, TrustStore trustStore, PKIXCertPathBuilderResult pathResult) {
+        put(chainFingerprint, certificateDomain, trustStore, pathResult, crlGeneration(trustStore), System.currentTimeMillis());
+    }
+
+    /**
+     * Records a path validated at the given time, that checked revocation against the given
+     * generation of the trust store revocation lists, read from {@link #crlGeneration(TrustStore)}
+     * before validating.
+     */
+    public void put(byte[] chainFingerprint, String certificateDomain, TrustStore trustStore, PKIXCertPathBuilderResult pathResult, long crlGeneration, long validationTimeMillis) {
+        long notBeforeMillis = Long.MIN_VALUE;
+        long notAfterMillis = Long.MAX_VALUE;
+        for (Certificate cert : pathResult.getCertPath().getCertificates()) {
+            X509Certificate x509 = (X509Certificate) cert;
+            notBeforeMillis = Math.max(notBeforeMillis, x509.getNotBefore().getTime());
+            notAfterMillis = Math.min(notAfterMillis, x509.getNotAfter().getTime());
+        }
+        X509Certificate trustedCert = pathResult.getTrustAnchor().getTrustedCert();
+        if (trustedCert != null) {
+            notBeforeMillis = Math.max(notBeforeMillis, trustedCert.getNotBefore().getTime());
+            notAfterMillis = Math.min(notAfterMillis, trustedCert.getNotAfter().getTime());
+        }
+
+        // A path checked against CRLs is only accepted while they are current and before a pending revocation
+        CrlStore crlStore = trustStore == null ? null : trustStore.getCrlStore();
+        if (crlStore != null) {
+            @SuppressWarnings("unchecked")
+            List<X509Certificate> pathCerts = (List<X509Certificate>) pathResult.getCertPath().getCertificates();
+            long[] window = crlStore.getValidityWindow(pathCerts, new Date(validationTimeMillis));
+            if (window == null) {
+                return;
+            }
+            notBeforeMillis = Math.max(notBeforeMillis, window[0]);
+            notAfterMillis = Math.min(notAfterMillis, window[1]);
+        }
+
+        X509Certificate issuerCert;
+        try {
+            issuerCert = CertificateUtils.getIssuerCertificate(pathResult);
+        } catch (InvalidCertificateException e) {
+            issuerCert = null;
+        }
+
+        long now = System.nanoTime();
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(new Key(chainFingerprint, certificateDomain, trustStore), new Entry(notBeforeMillis, notAfterMillis, now + ttlNanos, crlGeneration, issuerCert));
+    }
+
+    public static long crlGeneration(TrustStore trustStore) {
+        CrlStore crlStore = trustStore == null ? null : trustStore.getCrlStore();
+        return crlStore == null ? -1 : crlStore.getGeneration();
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() >= maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Key {
+        private final byte[] chainFingerprint;
+        private final String certificateDomain;
+        private final TrustStore trustStore;
+        private final int hash;
+
+        Key(byte[] chainFingerprint, String certificateDomain, TrustStore trustStore) {
+            this.chainFingerprint = chainFingerprint;
+            this.certificateDomain = certificateDomain == null ? "" : certificateDomain;
+            this.trustStore = trustStore;
+            this.hash = 31 * (31 * Arrays.hashCode(chainFingerprint) + this.certificateDomain.hashCode()) + System.identityHashCode(trustStore);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return trustStore == other.trustStore
+                && certificateDomain.equals(other.certificateDomain)
+                && Arrays.equals(chainFingerprint, other.chainFingerprint);
+        }
+    }
+
+    private static final class Entry {
+        private final long notBeforeMillis;
+        private final long notAfterMillis;
+        private final long expiresAtNanos;
+        private final long crlGeneration;
+        private final X509Certificate issuerCert;
+
+        Entry(long notBeforeMillis, long notAfterMillis, long expiresAtNanos, long crlGeneration, X509Certificate issuerCert) {
+            this.notBeforeMillis = notBeforeMillis;
+            this.notAfterMillis = notAfterMillis;
+            this.expiresAtNanos = expiresAtNanos;
+            this.crlGeneration = crlGeneration;
+            this.issuerCert = issuerCert;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.omnistrate.licensing.validation;
+
+import java.util.Arrays;
+
+/**
+ * A serialized license envelope together with the claims it is expected to carry, one item of a
+ * {@link Validator#checkLicenses} batch.
+ * <p>
+ * The envelope bytes are not copied, they must not be modified while the batch is running.
+ */
+public final class LicenseCheck {
+
+    private final byte[] envelopeBytes;
+    private final String organizationID;
+    private final String productPlanUniqueID;
+    private final String instanceID;
+    private final int hash;
+
+    public LicenseCheck(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID) {
+        if (envelopeBytes == null) {
+            throw new IllegalArgumentException("envelopeBytes are required");
+        }
+        this.envelopeBytes = envelopeBytes;
+        this.organizationID = organizationID == null ? "" : organizationID;
+        this.productPlanUniqueID = productPlanUniqueID == null ? "" : productPlanUniqueID;
+        this.instanceID = instanceID == null ? "" : instanceID;
+        this.hash = 31 * (31 * (31 * Arrays.hashCode(envelopeBytes) + this.organizationID.hashCode())
+            + this.productPlanUniqueID.hashCode()) + this.instanceID.hashCode();
+    }
+
+    public byte[] getEnvelopeBytes() {
+        return envelopeBytes;
+    }
+
+    public String getOrganizationID() {
+        return organizationID;
+    }
+
+    public String getProductPlanUniqueID() {
+        return productPlanUniqueID;
+    }
+
+    public String getInstanceID() {
+        return instanceID;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LicenseCheck)) {
+            return false;
+        }
+        LicenseCheck other = (LicenseCheck) obj;
+        return hash == other.hash
+            && organizationID.equals(other.organizationID)
+            && productPlanUniqueID.equals(other.productPlanUniqueID)
+            && instanceID.equals(other.instanceID)
+            && Arrays.equals(envelopeBytes, other.envelopeBytes);
+    }
+}
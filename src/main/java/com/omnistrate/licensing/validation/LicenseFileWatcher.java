@@ -0,0 +1,116 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.certificate.Fingerprints;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the license and certificate files and runs a callback when their content changes.
+ * <p>
+ * The parent directory of every file is watched rather than the file itself, so atomic symlink
+ * swaps such as the Kubernetes {@code ..data} volume updates are noticed. Events only trigger a
+ * content hash comparison, the callback runs when at least one hash differs from the last one seen.
+ */
+public class LicenseFileWatcher implements Closeable {
+
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final List<Path> files;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+    private final byte[][] hashes;
+
+    public LicenseFileWatcher(List<Path> files, Runnable onChange) throws IOException {
+        this.files = files;
+        this.onChange = onChange;
+        this.hashes = new byte[files.size()][];
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path file : files) {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                directories.add(directory);
+            }
+        }
+        try {
+            for (Path directory : directories) {
+                directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        hasChanged();
+        this.thread = ValidationThreads.daemonThreadFactory("omnistrate-license-watcher").newThread(this::run);
+        this.thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                key.pollEvents();
+                key.reset();
+
+                // A symlink swap produces a burst of events, wait for it to settle before hashing
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+
+                if (hasChanged()) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        // Keep watching, the next change triggers the callback again
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watcher closed
+        }
+    }
+
+    private boolean hasChanged() {
+        boolean changed = false;
+        for (int i = 0; i < files.size(); i++) {
+            byte[] hash;
+            try {
+                hash = Fingerprints.sha256(Files.readAllBytes(files.get(i)));
+            } catch (IOException e) {
+                // Missing or unreadable while the volume is being updated
+                hash = null;
+            }
+            if (!Arrays.equals(hash, hashes[i])) {
+                hashes[i] = hash;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
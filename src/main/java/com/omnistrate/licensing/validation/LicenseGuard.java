@@ -0,0 +1,302 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived holder of a validated license.
+ * <p>
+ * The license is validated with {@link Validator} when the guard is started and then re-validated
+ * on a background scheduler, every refresh interval and ahead of the license expiration time.
+ * {@link #isLicensed()} only reads the last published state, it never touches the filesystem or
+ * performs any cryptographic operation. The current time configured in the validation options is
+ * ignored, every validation uses the time at which it runs.
+ * <p>
+ * Only a definitive rejection of the license, its signature, certificate, claims or expiration,
+ * replaces a validated license. When the files cannot be read or parsed, for example while they
+ * are being rotated, the last validated license is kept until its expiration time, the failure is
+ * reported by {@link #getLastError()} and the files are read again after a short backoff.
+ * <p>
+ * When file watching is enabled the license and certificate files are also watched with a
+ * {@link LicenseFileWatcher}, and the license is re-validated as soon as their content changes.
+ */
+public class LicenseGuard implements Closeable {
+
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(10);
+    public static final Duration DEFAULT_EXPIRATION_MARGIN = Duration.ofMinutes(1);
+
+    private static final long MIN_DELAY_MILLIS = 1000;
+    private static final int MAX_RETRY_BACKOFF_SHIFT = 6;
+
+    private final ValidationOptions options;
+    private final long refreshIntervalMillis;
+    private final long expirationMarginMillis;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final boolean watchFiles;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile State state = State.NOT_VALIDATED;
+    private ScheduledFuture<?> scheduled;
+    private LicenseFileWatcher watcher;
+    private boolean closed;
+
+    private LicenseGuard(Builder builder) {
+        this.options = builder.options;
+        this.refreshIntervalMillis = builder.refreshInterval.toMillis();
+        this.expirationMarginMillis = builder.expirationMargin.toMillis();
+        this.watchFiles = builder.watchFiles;
+        if (builder.scheduler != null) {
+            this.scheduler = builder.scheduler;
+            this.ownsScheduler = false;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(ValidationThreads.daemonThreadFactory("omnistrate-license-guard"));
+            this.ownsScheduler = true;
+        }
+    }
+
+    /**
+     * Validates the license once and schedules the background re-validation.
+     *
+     * @return whether the license is valid after the initial validation
+     */
+    public boolean start() {
+        if (watchFiles) {
+            startWatcher();
+        }
+        return revalidate();
+    }
+
+    /**
+     * Re-validates the license immediately, publishes the new state and reschedules the next
+     * background validation.
+     *
+     * @return whether the license is valid after this validation
+     */
+    public boolean revalidate() {
+        lock.lock();
+        try {
+            if (closed) {
+                return isLicensed();
+            }
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+
+            ZonedDateTime currentTime = ZonedDateTime.now(ZoneOffset.UTC);
+            State next = validate(state, currentTime);
+            state = next;
+
+            scheduled = scheduler.schedule(this::revalidate, nextDelayMillis(next), TimeUnit.MILLISECONDS);
+            return isLicensed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private State validate(State previous, ZonedDateTime currentTime) {
+        ValidatorConfig config = new ValidatorConfig(options.getInstanceID(), options.getCertPath(), options.getLicensePath());
+        Validator validator;
+        LicenseEnvelope envelope;
+        try {
+            validator = Validator.newValidator(config, options);
+            envelope = Validator.readLicenseEnvelope(config);
+        } catch (Exception e) {
+            // The files may be missing or half written while they are rotated, keep the last license
+            return new State(previous.license, previous.expirationTimeMillis, currentTime, e, previous.failedReads + 1);
+        }
+        try {
+            Validator.validateLicenseEnvelope(validator, envelope, options, currentTime);
+        } catch (Exception e) {
+            return new State(null, Long.MIN_VALUE, currentTime, e, 0);
+        }
+        License license = envelope.getLicense();
+        return new State(license, license.getExpirationTimeMillis(), currentTime, null, 0);
+    }
+
+    public boolean isLicensed() {
+        State current = state;
+        return current.license != null && System.currentTimeMillis() <= current.expirationTimeMillis;
+    }
+
+    public License getLicense() {
+        return state.license;
+    }
+
+    public Exception getLastError() {
+        return state.error;
+    }
+
+    public ZonedDateTime getLastValidationTime() {
+        return state.validationTime;
+    }
+
+    public boolean isWatchingFiles() {
+        lock.lock();
+        try {
+            return watcher != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+                watcher = null;
+            }
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (ownsScheduler) {
+                scheduler.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startWatcher() {
+        lock.lock();
+        try {
+            if (closed || watcher != null) {
+                return;
+            }
+            ValidatorConfig config = new ValidatorConfig(options.getInstanceID(), options.getCertPath(), options.getLicensePath());
+            Path certPath = Paths.get(config.getCertPath());
+            Path licensePath = Paths.get(config.getLicensePath());
+            try {
+                watcher = new LicenseFileWatcher(Arrays.asList(certPath, licensePath), this::revalidate);
+            } catch (IOException e) {
+                // Fall back to the scheduled re-validation only
+                watcher = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long nextDelayMillis(State next) {
+        long delay = nextDelayMillis(refreshIntervalMillis, expirationMarginMillis, next.license != null ? next.expirationTimeMillis : Long.MIN_VALUE, System.currentTimeMillis());
+        if (next.failedReads > 0) {
+            delay = Math.min(delay, retryDelayMillis(next.failedReads));
+        }
+        return delay;
+    }
+
+    /**
+     * Backoff before reading the files again after they could not be read or parsed, doubling
+     * from one second up to about a minute.
+     */
+    static long retryDelayMillis(int failedReads) {
+        return MIN_DELAY_MILLIS << Math.min(failedReads - 1, MAX_RETRY_BACKOFF_SHIFT);
+    }
+
+    /**
+     * Runs before the expiration margin starts, so a renewed license is picked up in time. Inside
+     * the margin the next run is at the expiration itself, not once per second until then.
+     */
+    static long nextDelayMillis(long refreshIntervalMillis, long expirationMarginMillis, long expirationTimeMillis, long now) {
+        long delay = refreshIntervalMillis;
+        if (expirationTimeMillis != Long.MIN_VALUE) {
+            long untilMargin = expirationTimeMillis - expirationMarginMillis - now;
+            long untilExpiration = expirationTimeMillis - now;
+            if (untilMargin > 0) {
+                delay = Math.min(delay, untilMargin);
+            } else if (untilExpiration > 0) {
+                delay = Math.min(delay, untilExpiration);
+            }
+        }
+        return Math.max(delay, Math.min(MIN_DELAY_MILLIS, refreshIntervalMillis));
+    }
+
+    private static final class State {
+        private static final State NOT_VALIDATED = new State(null, Long.MIN_VALUE, null, null, 0);
+
+        private final License license;
+        private final long expirationTimeMillis;
+        private final ZonedDateTime validationTime;
+        private final Exception error;
+        // Consecutive validations that could not read or parse the files
+        private final int failedReads;
+
+        State(License license, long expirationTimeMillis, ZonedDateTime validationTime, Exception error, int failedReads) {
+            this.license = license;
+            this.expirationTimeMillis = expirationTimeMillis;
+            this.validationTime = validationTime;
+            this.error = error;
+            this.failedReads = failedReads;
+        }
+    }
+
+    public static class Builder {
+
+        private ValidationOptions options = new ValidationOptions.Builder().build();
+        private Duration refreshInterval = DEFAULT_REFRESH_INTERVAL;
+        private Duration expirationMargin = DEFAULT_EXPIRATION_MARGIN;
+        private ScheduledExecutorService scheduler;
+        private boolean watchFiles;
+
+        public Builder options(ValidationOptions options) {
+            this.options = options;
+            return this;
+        }
+
+        public Builder refreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        public Builder expirationMargin(Duration expirationMargin) {
+            this.expirationMargin = expirationMargin;
+            return this;
+        }
+
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public Builder watchFiles(boolean watchFiles) {
+            this.watchFiles = watchFiles;
+            return this;
+        }
+
+        public LicenseGuard build() {
+            if (options == null) {
+                throw new IllegalArgumentException("options are required");
+            }
+            if (refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero()) {
+                throw new IllegalArgumentException("refreshInterval must be positive");
+            }
+            if (expirationMargin == null || expirationMargin.isNegative()) {
+                throw new IllegalArgumentException("expirationMargin must not be negative");
+            }
+            return new LicenseGuard(this);
+        }
+    }
+}
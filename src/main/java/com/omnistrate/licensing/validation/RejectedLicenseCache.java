@@ -0,0 +1,248 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.certificate.Fingerprints;
+import com.omnistrate.licensing.common.ValidationResult;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers raw license envelopes that a {@link Validator} rejected, so replaying the same bad
+ * input is rejected again without decoding, parsing or verifying it.
+ * <p>
+ * Only failures that follow from the input and the signing certificate alone are remembered: a
+ * malformed or invalid envelope and a signature that does not match. Expired licenses, claim
+ * mismatches and signature engine errors depend on the request or the environment and are always
+ * validated again. A remembered input is rejected with the reason it was first rejected with for
+ * at most the configured TTL.
+ * <p>
+ * Inputs are identified by a SHA-256 digest seeded per cache, and only the digest is kept, so an
+ * entry takes the same memory whatever the size of the input. A cached rejection is never reported
+ * for another input short of a SHA-256 collision.
+ * <p>
+ * Rejections are also counted per caller supplied source, such as a client address or tenant, to
+ * identify callers replaying bad licenses. At most as many sources as cache entries are tracked;
+ * further sources are counted under {@link #OTHER_SOURCES}.
+ */
+public class RejectedLicenseCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+    public static final String OTHER_SOURCES = "*";
+
+    private static final int SEED_LENGTH = 16;
+
+    enum Encoding {
+        BASE64,
+        JSON,
+        BYTES
+    }
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    // Random per cache, so digests cannot be precomputed or matched across caches
+    private final byte[] seed = new byte[SEED_LENGTH];
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    public RejectedLicenseCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public RejectedLicenseCache(Duration ttl, int maxEntries) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        new SecureRandom().nextBytes(seed);
+    }
+
+    /**
+     * Returns the digest identifying the input in this cache, or null when the input cannot be
+     * remembered. The digest is taken once per validation and passed to {@link #get} and
+     * {@link #put}.
+     */
+    byte[] digest(Encoding encoding, Object input) {
+        byte[] prefix = Arrays.copyOf(seed, SEED_LENGTH + 1);
+        prefix[SEED_LENGTH] = (byte) encoding.ordinal();
+        ByteBuffer header = ByteBuffer.wrap(prefix);
+        if (input instanceof byte[]) {
+            return Fingerprints.sha256(header, ByteBuffer.wrap((byte[]) input));
+        }
+        if (input instanceof String) {
+            // The chars as they are, an encoding would map unpaired surrogates of different strings to the same bytes
+            String s = (String) input;
+            ByteBuffer chars = ByteBuffer.allocate(s.length() * 2);
+            chars.asCharBuffer().put(s);
+            return Fingerprints.sha256(header, chars);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the remembered rejection of the input with the digest, or null when it has to be
+     * validated.
+     */
+    ValidationResult get(X509Certificate cert, byte[] digest, String source) {
+        if (digest == null) {
+            return null;
+        }
+        Key key = new Key(cert, digest);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        hits.increment();
+        countRejection(source);
+        return entry.result;
+    }
+
+    /**
+     * Counts a failed validation of the input, and remembers it when the failure does not depend
+     * on the request.
+     */
+    void put(X509Certificate cert, byte[] digest, ValidationResult result, String source) {
+        if (result.isValid()) {
+            return;
+        }
+        countRejection(source);
+        if (!isCacheable(result.getReason()) || digest == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(new Key(cert, digest), new Entry(result, now + ttlNanos));
+    }
+
+    /**
+     * Returns the number of rejections counted for the source, including rejections answered from
+     * the cache.
+     */
+    public long getRejectionCount(String source) {
+        LongAdder count = rejections.get(source);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Returns a snapshot of the rejection counts by source.
+     */
+    public Map<String, Long> getRejectionCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : rejections.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Returns the number of inputs rejected from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public void resetCounts() {
+        rejections.clear();
+        hits.reset();
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static boolean isCacheable(ValidationResult.Reason reason) {
+        switch (reason) {
+            case MALFORMED_ENVELOPE:
+            case INVALID_ENVELOPE:
+            case SIGNATURE_MISMATCH:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void countRejection(String source) {
+        if (source == null) {
+            return;
+        }
+        LongAdder count = rejections.get(source);
+        if (count == null) {
+            String tracked = rejections.size() < maxEntries ? source : OTHER_SOURCES;
+            count = rejections.computeIfAbsent(tracked, s -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() >= maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Key {
+        private final X509Certificate cert;
+        private final byte[] digest;
+        private final int hash;
+
+        Key(X509Certificate cert, byte[] digest) {
+            this.cert = cert;
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return cert == other.cert && Arrays.equals(digest, other.digest);
+        }
+    }
+
+    private static final class Entry {
+        private final ValidationResult result;
+        private final long expiresAtNanos;
+
+        Entry(ValidationResult result, long expiresAtNanos) {
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.certificate.Fingerprints;
+import com.omnistrate.licensing.common.SignatureAlgorithm;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoizes license signature verifications, for validators that check the same envelopes over
+ * and over.
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the signing certificate fingerprint, the signature
+ * algorithm, the signature and the signed license bytes, so a cached outcome is only reused for
+ * exactly the same signature over exactly the same bytes and certificate. A hit costs one digest
+ * of the license instead of a public key operation. Signature engine errors are not cached.
+ * <p>
+ * Once full, the least recently used quarter of the entries is evicted. Recency is tracked per
+ * entry without locking, so eviction is approximate under concurrent access.
+ */
+public class SignatureVerificationCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public SignatureVerificationCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public SignatureVerificationCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the digest identifying a verification. The position of {@code data} is not moved.
+     */
+    static byte[] digest(byte[] certFingerprint, SignatureAlgorithm algorithm, byte[] signature, ByteBuffer data) {
+        // Length prefixed, so different fields can never produce the same input
+        byte[] algorithmName = algorithm == null ? new byte[0] : algorithm.getIdentifier().getBytes(StandardCharsets.US_ASCII);
+        byte[] lengths = ByteBuffer.allocate(8).putInt(algorithmName.length).putInt(signature.length).array();
+        return Fingerprints.sha256(ByteBuffer.wrap(certFingerprint), ByteBuffer.wrap(lengths), ByteBuffer.wrap(algorithmName), ByteBuffer.wrap(signature), data);
+    }
+
+    /**
+     * Returns the cached outcome of the verification, or null when it has to be verified.
+     */
+    Boolean get(byte[] digest) {
+        Entry entry = entries.get(new Key(digest));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.lastAccessNanos = System.nanoTime();
+        return entry.verified;
+    }
+
+    void put(byte[] digest, boolean verified) {
+        if (entries.size() >= maxEntries) {
+            evict();
+        }
+        entries.put(new Key(digest), new Entry(verified, System.nanoTime()));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long[] accesses = new long[entries.size()];
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            if (count == accesses.length) {
+                break;
+            }
+            accesses[count++] = entry.lastAccessNanos;
+        }
+        if (count == 0) {
+            return;
+        }
+        // Access times are compared as differences from the oldest sample, which survives nanoTime overflow
+        long base = accesses[0];
+        for (int i = 1; i < count; i++) {
+            if (accesses[i] - base < 0) {
+                base = accesses[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            accesses[i] -= base;
+        }
+        Arrays.sort(accesses, 0, count);
+        long cutoff = base + accesses[Math.max(0, count / 4 - 1)];
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().lastAccessNanos - cutoff <= 0) {
+                entries.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static final class Key {
+        private final byte[] digest;
+        private final int hash;
+
+        Key(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(digest, ((Key) obj).digest);
+        }
+    }
+
+    private static final class Entry {
+        private final boolean verified;
+        // Written without synchronization on every hit, only used to pick entries to evict
+        private long lastAccessNanos;
+
+        Entry(boolean verified, long lastAccessNanos) {
+            this.verified = verified;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.omnistrate.licensing.validation;
+
+/**
+ * Reports the duration and outcome of every validation stage.
+ * <p>
+ * This implementation does nothing. On Java 11 and later the multi-release jar provides
+ * {@code JfrValidationEvents}, which emits a JDK Flight Recorder event per stage while a recording
+ * has the {@code com.omnistrate.licensing.ValidationStage} event enabled.
+ */
+class ValidationEvents {
+
+    static final String OUTCOME_VALID = "VALID";
+    static final String OUTCOME_CACHED = "CACHED";
+    static final String OUTCOME_READ_ERROR = "READ_ERROR";
+    static final String OUTCOME_INVALID_CERTIFICATE = "INVALID_CERTIFICATE";
+
+    private static final ValidationEvents INSTANCE = load();
+
+    /**
+     * Starts timing a stage.
+     *
+     * @return the in-flight event, or null when no recording is interested in it
+     */
+    static Object begin(ValidationStage stage) {
+        return INSTANCE.start(stage);
+    }
+
+    static void end(Object event, String outcome) {
+        if (event != null) {
+            INSTANCE.finish(event, outcome);
+        }
+    }
+
+    Object start(ValidationStage stage) {
+        return null;
+    }
+
+    void finish(Object event, String outcome) {
+    }
+
+    private static ValidationEvents load() {
+        try {
+            Class<?> jfrEvents = Class.forName("com.omnistrate.licensing.validation.JfrValidationEvents");
+            return (ValidationEvents) jfrEvents.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Java 8, or a runtime without the jdk.jfr module
+            return new ValidationEvents();
+        }
+    }
+}
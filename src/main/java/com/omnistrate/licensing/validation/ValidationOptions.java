@@ -6,6 +6,7 @@ import java.time.ZonedDateTime;
 public class ValidationOptions {
 
     private boolean skipCertificateValidation;
+    private boolean verifyReserializedLicense;
     private String certificateDomain;
     private ZonedDateTime currentTime;
     private String certPath;
@@ -16,6 +17,7 @@ public class ValidationOptions {
 
     private ValidationOptions(Builder builder) {
         this.skipCertificateValidation = builder.skipCertificateValidation;
+        this.verifyReserializedLicense = builder.verifyReserializedLicense;
         this.certificateDomain = builder.certificateDomain;
         this.currentTime = builder.currentTime;
         this.certPath = builder.certPath;
@@ -29,6 +31,10 @@ public class ValidationOptions {
         return skipCertificateValidation;
     }
 
+    public boolean isVerifyReserializedLicense() {
+        return verifyReserializedLicense;
+    }
+
     public String getCertificateDomain() {
         return certificateDomain;
     }
@@ -62,6 +68,7 @@ public class ValidationOptions {
         private final static String SIGNING_CERTIFICATE_VALID_DNS_NAME = "licensing.omnistrate.cloud";
 
         private boolean skipCertificateValidation = false;
+        private boolean verifyReserializedLicense = false;
         private String certificateDomain = SIGNING_CERTIFICATE_VALID_DNS_NAME;
         private ZonedDateTime currentTime = ZonedDateTime.now(ZoneOffset.UTC);
         private String certPath;
@@ -75,6 +82,14 @@ public class ValidationOptions {
             return this;
         }
 
+        /**
+         * See {@link Validator#setVerifyReserializedLicense(boolean)}.
+         */
+        public Builder verifyReserializedLicense(boolean verifyReserializedLicense) {
+            this.verifyReserializedLicense = verifyReserializedLicense;
+            return this;
+        }
+
         public Builder certificateDomain(String certificateDomain) {
             this.certificateDomain = certificateDomain;
             return this;
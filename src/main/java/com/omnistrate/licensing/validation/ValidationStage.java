@@ -0,0 +1,12 @@
+package com.omnistrate.licensing.validation;
+
+/**
+ * Stages of a license validation reported through {@link ValidationEvents}.
+ */
+enum ValidationStage {
+    FILE_READ,
+    PARSE,
+    LICENSE_CHECK,
+    CERTIFICATE_VERIFY,
+    SIGNATURE_VERIFY
+}
@@ -0,0 +1,49 @@
+package com.omnistrate.licensing.validation;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the background and batch validation paths.
+ * <p>
+ * This implementation uses platform daemon threads and the common fork-join pool. On Java 21 and
+ * later the multi-release jar provides {@code VirtualValidationThreads}, which uses virtual threads
+ * instead.
+ */
+class ValidationThreads {
+
+    private static final ValidationThreads INSTANCE = load();
+
+    static ThreadFactory daemonThreadFactory(String namePrefix) {
+        return INSTANCE.newThreadFactory(namePrefix);
+    }
+
+    static Executor batchExecutor() {
+        return INSTANCE.newBatchExecutor();
+    }
+
+    ThreadFactory newThreadFactory(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    Executor newBatchExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+
+    private static ValidationThreads load() {
+        try {
+            Class<?> virtualThreads = Class.forName("com.omnistrate.licensing.validation.VirtualValidationThreads");
+            return (ValidationThreads) virtualThreads.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Java 20 or earlier
+            return new ValidationThreads();
+        }
+    }
+}
@@ -1,29 +1,81 @@
 package com.omnistrate.licensing.validation;
 
 import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.certificate.Fingerprints;
+import com.omnistrate.licensing.certificate.TrustStore;
+import com.omnistrate.licensing.common.Batches;
 import com.omnistrate.licensing.common.InvalidCertificateException;
 import com.omnistrate.licensing.common.InvalidLicenseException;
 import com.omnistrate.licensing.common.InvalidSignatureException;
 import com.omnistrate.licensing.common.License;
 import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.common.SignatureAlgorithm;
+import com.omnistrate.licensing.common.ValidationResult;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.cert.PKIXCertPathBuilderResult;
 import java.security.cert.X509Certificate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class Validator {
 
     private X509Certificate cert;
     private List<X509Certificate> intermediateCerts;
+    private TrustStore trustStore = TrustStore.getDefault();
+    private CertificateValidationCache certificateValidationCache = CertificateValidationCache.getDefault();
+    private RejectedLicenseCache rejectedLicenseCache;
+    private SignatureVerificationCache signatureVerificationCache;
+    private boolean verifyReserializedLicense;
+    private volatile byte[] chainFingerprint;
+    private volatile byte[] certFingerprint;
 
     public Validator(X509Certificate cert, List<X509Certificate> intermediateCerts) {
         this.cert = cert;
         this.intermediateCerts = intermediateCerts;
     }
 
+    public Validator(X509Certificate cert, List<X509Certificate> intermediateCerts, TrustStore trustStore) {
+        this(cert, intermediateCerts);
+        this.trustStore = trustStore;
+    }
+
+    public Validator(X509Certificate cert, List<X509Certificate> intermediateCerts, TrustStore trustStore, CertificateValidationCache certificateValidationCache) {
+        this(cert, intermediateCerts, trustStore);
+        this.certificateValidationCache = certificateValidationCache;
+    }
+
+    /**
+     * Creates a validator that remembers rejected base64, JSON and byte array envelopes in the
+     * given cache, which may be shared with other validators. Without a cache every input is
+     * validated.
+     */
+    public Validator(X509Certificate cert, List<X509Certificate> intermediateCerts, TrustStore trustStore, CertificateValidationCache certificateValidationCache, RejectedLicenseCache rejectedLicenseCache) {
+        this(cert, intermediateCerts, trustStore, certificateValidationCache);
+        this.rejectedLicenseCache = rejectedLicenseCache;
+    }
+
+    /**
+     * Creates a validator that also reuses signature verifications from the given cache, which may
+     * be shared with other validators. Without a cache every signature is verified.
+     */
+    public Validator(X509Certificate cert, List<X509Certificate> intermediateCerts, TrustStore trustStore, CertificateValidationCache certificateValidationCache, RejectedLicenseCache rejectedLicenseCache, SignatureVerificationCache signatureVerificationCache) {
+        this(cert, intermediateCerts, trustStore, certificateValidationCache, rejectedLicenseCache);
+        this.signatureVerificationCache = signatureVerificationCache;
+    }
+
     public Validator(byte[] certPEM) throws InvalidCertificateException {
         List<X509Certificate> certChain = CertificateUtils.loadCertificateChainFromBytes(certPEM);
         if (certChain.isEmpty()) {
@@ -47,16 +99,28 @@ public class Validator {
     }
     
     public boolean validateLicense(LicenseEnvelope envelope, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        ValidationResult result = checkLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+        if (!result.isValid()) {
+            throwFailure(result, envelope, organizationID, productPlanUniqueID, instanceID);
+        }
+        return true;
+    }
+
+    /**
+     * Same checks as {@link #validateLicense(LicenseEnvelope, String, String, String, ZonedDateTime)},
+     * reported as a result instead of an exception.
+     */
+    public ValidationResult checkLicense(LicenseEnvelope envelope, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
         if (cert == null) {
-            throw new InvalidLicenseException("signingCertificate is required to validate a license");
+            return ValidationResult.failure(ValidationResult.Reason.MISSING_CERTIFICATE);
         }
 
         if (envelope == null) {
-            throw new InvalidLicenseException("envelope is required");
+            return ValidationResult.failure(ValidationResult.Reason.MISSING_ENVELOPE);
         }
 
         if (!envelope.isValid()) {
-            throw new InvalidLicenseException("envelope is invalid");
+            return ValidationResult.failure(ValidationResult.Reason.INVALID_ENVELOPE);
         }
 
         // Extract the signature
@@ -64,57 +128,410 @@ public class Validator {
 
         // Extract the license
         License license = envelope.getLicense();
-        byte[] licenseBytes = license.toBytes();
 
-        // Check if the license is valid
-        if (!license.isValid(organizationID, productPlanUniqueID, instanceID)) {
-            throw new InvalidLicenseException("license is invalid");
+        // Check if the license is valid and not expired
+        Object event = ValidationEvents.begin(ValidationStage.LICENSE_CHECK);
+        ValidationResult result = license.check(organizationID, productPlanUniqueID, instanceID);
+        if (result.isValid() && license.isExpiredAt(currentTime)) {
+            result = ValidationResult.failure(ValidationResult.Reason.EXPIRED);
         }
-
-        // Check if the license is expired
-        if (license.isExpiredAt(currentTime)) {
-            throw new InvalidLicenseException("license is expired");
+        ValidationEvents.end(event, result.getReason().name());
+        if (!result.isValid()) {
+            return result;
         }
 
         // Verify the signature
-        if (!CertificateUtils.verifySignature(cert, signature, licenseBytes)) {
-            throw new InvalidLicenseException("failed to verify signature");
+        event = ValidationEvents.begin(ValidationStage.SIGNATURE_VERIFY);
+        try {
+            if (!verifySignature(envelope, signature)) {
+                result = ValidationResult.failure(ValidationResult.Reason.SIGNATURE_MISMATCH);
+            }
+        } catch (InvalidSignatureException e) {
+            result = ValidationResult.failure(ValidationResult.Reason.SIGNATURE_ERROR, e);
         }
+        ValidationEvents.end(event, result.getReason().name());
+        return result;
+    }
 
-        return true;
+    private static void throwFailure(ValidationResult result, LicenseEnvelope envelope, String organizationID, String productPlanUniqueID, String instanceID) throws InvalidLicenseException, InvalidSignatureException {
+        switch (result.getReason()) {
+            case MISSING_CERTIFICATE:
+                throw new InvalidLicenseException("signingCertificate is required to validate a license");
+            case MISSING_ENVELOPE:
+                throw new InvalidLicenseException("envelope is required");
+            case MALFORMED_ENVELOPE:
+                // Only reported from the rejected license cache, with the exception of the first parse
+                if (result.getCause() instanceof IllegalArgumentException) {
+                    throw new IllegalArgumentException(result.getCause().getMessage(), result.getCause());
+                }
+                throw new InvalidLicenseException(result.getCause() == null ? "envelope is malformed" : result.getCause().getMessage(), result.getCause());
+            case INVALID_ENVELOPE:
+                throw new InvalidLicenseException("envelope is invalid");
+            case EXPIRED:
+                throw new InvalidLicenseException("license is expired");
+            case SIGNATURE_MISMATCH:
+                throw new InvalidLicenseException("failed to verify signature");
+            case SIGNATURE_ERROR:
+                throw (InvalidSignatureException) result.getCause();
+            default:
+                // License claim failures keep the detailed message of License.isValid
+                envelope.getLicense().isValid(organizationID, productPlanUniqueID, instanceID);
+                throw new InvalidLicenseException("license is invalid");
+        }
+    }
+
+    private boolean verifySignature(LicenseEnvelope envelope, byte[] signature) throws InvalidSignatureException {
+        // Parsed envelopes are verified over the exact License bytes that were signed
+        // The engine follows the certificate key, an algorithm named by the envelope must match it
+        ByteBuffer signedLicenseBytes = envelope.getSignedLicenseBytes();
+        if (signedLicenseBytes != null) {
+            boolean verified = verifySignature(envelope.getAlgorithm(), signature, signedLicenseBytes);
+            if (verified || !verifyReserializedLicense) {
+                return verified;
+            }
+        }
+
+        // Envelopes built in memory, and with the opt-in those signed over the re-serialized License, are verified over License.toBytes()
+        return verifySignature(envelope.getAlgorithm(), signature, ByteBuffer.wrap(envelope.getLicense().toBytes()));
+    }
+
+    /**
+     * Also accepts parsed envelopes whose signature only matches the re-serialized License, such as
+     * files that were re-formatted after signing. Off by default: every rejected envelope then costs
+     * a second verification.
+     */
+    public void setVerifyReserializedLicense(boolean verifyReserializedLicense) {
+        this.verifyReserializedLicense = verifyReserializedLicense;
+    }
+
+    private boolean verifySignature(SignatureAlgorithm algorithm, byte[] signature, ByteBuffer data) throws InvalidSignatureException {
+        SignatureVerificationCache cache = signatureVerificationCache;
+        byte[] fingerprint = cache == null ? null : getCertFingerprint();
+        if (fingerprint == null) {
+            return CertificateUtils.verifySignature(cert, algorithm, signature, data);
+        }
+
+        byte[] digest = SignatureVerificationCache.digest(fingerprint, algorithm, signature, data);
+        Boolean cached = cache.get(digest);
+        if (cached != null) {
+            return cached;
+        }
+        boolean verified = CertificateUtils.verifySignature(cert, algorithm, signature, data);
+        cache.put(digest, verified);
+        return verified;
     }
 
     public boolean validateLicenseBase64(String envelopeBase64,  String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
-        // Decode the license envelope
-        LicenseEnvelope envelope = LicenseEnvelope.parseBase64(envelopeBase64);
+        return validateLicenseBase64(envelopeBase64, organizationID, productPlanUniqueID, instanceID, currentTime, null);
+    }
 
-        // Validate the license
-        return validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+    /**
+     * Validates a base64 encoded envelope received from the given source, which is counted by the
+     * {@link RejectedLicenseCache} of this validator when the license is rejected.
+     */
+    public boolean validateLicenseBase64(String envelopeBase64,  String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime, String source) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        return validateLicense(RejectedLicenseCache.Encoding.BASE64, envelopeBase64, source, () -> LicenseEnvelope.parseBase64(envelopeBase64), organizationID, productPlanUniqueID, instanceID, currentTime);
     }
 
     public boolean validateLicenseString(String envelopeJson,  String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
-        // Decode the license envelope
-        LicenseEnvelope envelope = LicenseEnvelope.parse(envelopeJson);
+        return validateLicenseString(envelopeJson, organizationID, productPlanUniqueID, instanceID, currentTime, null);
+    }
 
-        // Validate the license
-        return validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+    /**
+     * Validates a JSON envelope received from the given source, which is counted by the
+     * {@link RejectedLicenseCache} of this validator when the license is rejected.
+     */
+    public boolean validateLicenseString(String envelopeJson,  String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime, String source) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        return validateLicense(RejectedLicenseCache.Encoding.JSON, envelopeJson, source, () -> LicenseEnvelope.parse(envelopeJson), organizationID, productPlanUniqueID, instanceID, currentTime);
     }
 
     public boolean validateLicenseBytes(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        return validateLicenseBytes(envelopeBytes, organizationID, productPlanUniqueID, instanceID, currentTime, null);
+    }
+
+    /**
+     * Validates an envelope received from the given source, which is counted by the
+     * {@link RejectedLicenseCache} of this validator when the license is rejected.
+     */
+    public boolean validateLicenseBytes(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime, String source) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        return validateLicense(RejectedLicenseCache.Encoding.BYTES, envelopeBytes, source, () -> LicenseEnvelope.parseBytes(envelopeBytes), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    private boolean validateLicense(RejectedLicenseCache.Encoding encoding, Object input, String source, EnvelopeSource envelopeSource, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidSignatureException {
+        RejectedLicenseCache cache = rejectedLicenseCache;
+        byte[] digest = null;
+        if (cache != null) {
+            digest = cache.digest(encoding, input);
+            ValidationResult rejected = cache.get(cert, digest, source);
+            if (rejected != null) {
+                throwFailure(rejected, null, organizationID, productPlanUniqueID, instanceID);
+            }
+        }
+
         // Decode the license envelope
-        LicenseEnvelope envelope = LicenseEnvelope.parseBytes(envelopeBytes);
+        LicenseEnvelope envelope;
+        try {
+            envelope = parse(envelopeSource);
+        } catch (InvalidLicenseException | IllegalArgumentException e) {
+            if (cache != null) {
+                cache.put(cert, digest, ValidationResult.failure(ValidationResult.Reason.MALFORMED_ENVELOPE, e), source);
+            }
+            throw e;
+        }
 
         // Validate the license
+        ValidationResult result = checkLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+        if (!result.isValid()) {
+            if (cache != null) {
+                cache.put(cert, digest, result, source);
+            }
+            throwFailure(result, envelope, organizationID, productPlanUniqueID, instanceID);
+        }
+        return true;
+    }
+
+    /**
+     * Validates the remaining bytes of a buffer, such as a {@link java.nio.MappedByteBuffer} of a license file.
+     * The position of the buffer is not moved.
+     */
+    public boolean validateLicenseBytes(ByteBuffer envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        LicenseEnvelope envelope = parse(() -> LicenseEnvelope.parseBytes(envelopeBytes));
+        return validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    /**
+     * Validates the envelope read from the stream, which is not closed.
+     */
+    public boolean validateLicenseBytes(InputStream envelopeStream, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        LicenseEnvelope envelope = parse(() -> LicenseEnvelope.parseBytes(envelopeStream));
+        return validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    /**
+     * Validates the envelope read from the channel, which is not closed.
+     */
+    public boolean validateLicenseBytes(ReadableByteChannel envelopeChannel, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        LicenseEnvelope envelope = parse(() -> LicenseEnvelope.parseBytes(envelopeChannel));
         return validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
     }
 
+    /**
+     * Validates a base64 encoded envelope, decoded while it is read from the stream. The stream is not closed.
+     */
+    public boolean validateLicenseBase64(InputStream envelopeBase64, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        LicenseEnvelope envelope = parse(() -> LicenseEnvelope.parseBase64(envelopeBase64));
+        return validateLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    private static LicenseEnvelope parse(EnvelopeSource source) throws InvalidLicenseException {
+        Object event = ValidationEvents.begin(ValidationStage.PARSE);
+        String outcome = ValidationResult.Reason.MALFORMED_ENVELOPE.name();
+        try {
+            LicenseEnvelope envelope = source.parse();
+            outcome = ValidationEvents.OUTCOME_VALID;
+            return envelope;
+        } finally {
+            ValidationEvents.end(event, outcome);
+        }
+    }
+
+    private interface EnvelopeSource {
+        LicenseEnvelope parse() throws InvalidLicenseException;
+    }
+
+    public ValidationResult checkLicenseBase64(String envelopeBase64, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicenseBase64(envelopeBase64, organizationID, productPlanUniqueID, instanceID, currentTime, null);
+    }
+
+    /**
+     * Checks a base64 encoded envelope received from the given source, which is counted by the
+     * {@link RejectedLicenseCache} of this validator when the license is rejected.
+     */
+    public ValidationResult checkLicenseBase64(String envelopeBase64, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime, String source) {
+        return checkLicense(RejectedLicenseCache.Encoding.BASE64, envelopeBase64, source, () -> LicenseEnvelope.parseBase64(envelopeBase64), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    public ValidationResult checkLicenseString(String envelopeJson, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicenseString(envelopeJson, organizationID, productPlanUniqueID, instanceID, currentTime, null);
+    }
+
+    /**
+     * Checks a JSON envelope received from the given source, which is counted by the
+     * {@link RejectedLicenseCache} of this validator when the license is rejected.
+     */
+    public ValidationResult checkLicenseString(String envelopeJson, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime, String source) {
+        return checkLicense(RejectedLicenseCache.Encoding.JSON, envelopeJson, source, () -> LicenseEnvelope.parse(envelopeJson), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    public ValidationResult checkLicenseBytes(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicenseBytes(envelopeBytes, organizationID, productPlanUniqueID, instanceID, currentTime, null);
+    }
+
+    /**
+     * Checks an envelope received from the given source, which is counted by the
+     * {@link RejectedLicenseCache} of this validator when the license is rejected.
+     */
+    public ValidationResult checkLicenseBytes(byte[] envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime, String source) {
+        return checkLicense(RejectedLicenseCache.Encoding.BYTES, envelopeBytes, source, () -> LicenseEnvelope.parseBytes(envelopeBytes), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    public ValidationResult checkLicenseBytes(ByteBuffer envelopeBytes, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicense(() -> LicenseEnvelope.parseBytes(envelopeBytes), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    public ValidationResult checkLicenseBytes(InputStream envelopeStream, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicense(() -> LicenseEnvelope.parseBytes(envelopeStream), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    public ValidationResult checkLicenseBytes(ReadableByteChannel envelopeChannel, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicense(() -> LicenseEnvelope.parseBytes(envelopeChannel), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    public ValidationResult checkLicenseBase64(InputStream envelopeBase64, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        return checkLicense(() -> LicenseEnvelope.parseBase64(envelopeBase64), organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    private ValidationResult checkLicense(RejectedLicenseCache.Encoding encoding, Object input, String source, EnvelopeSource envelopeSource, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        RejectedLicenseCache cache = rejectedLicenseCache;
+        if (cache == null) {
+            return checkLicense(envelopeSource, organizationID, productPlanUniqueID, instanceID, currentTime);
+        }
+        byte[] digest = cache.digest(encoding, input);
+        ValidationResult result = cache.get(cert, digest, source);
+        if (result == null) {
+            result = checkLicense(envelopeSource, organizationID, productPlanUniqueID, instanceID, currentTime);
+            cache.put(cert, digest, result, source);
+        }
+        return result;
+    }
+
+    private ValidationResult checkLicense(EnvelopeSource source, String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime currentTime) {
+        LicenseEnvelope envelope;
+        try {
+            envelope = parse(source);
+        } catch (InvalidLicenseException | IllegalArgumentException e) {
+            return ValidationResult.failure(ValidationResult.Reason.MALFORMED_ENVELOPE, e);
+        }
+        return checkLicense(envelope, organizationID, productPlanUniqueID, instanceID, currentTime);
+    }
+
+    /**
+     * Checks a batch of envelopes on the common fork-join pool, or on virtual threads on Java 21 and later.
+     *
+     * @see #checkLicenses(Collection, ZonedDateTime, Executor)
+     */
+    public List<ValidationResult> checkLicenses(Collection<LicenseCheck> checks, ZonedDateTime currentTime) {
+        return checkLicenses(checks, currentTime, ValidationThreads.batchExecutor());
+    }
+
+    /**
+     * Checks a batch of envelopes in parallel on the given executor.
+     * <p>
+     * Identical items, same envelope bytes and same expected claims, are only checked once. The
+     * unique items are split into a few chunks per available core so that every task amortizes
+     * its scheduling cost over several signature verifications. The calling thread waits for the
+     * whole batch.
+     *
+     * @return one result per item, in the iteration order of {@code checks}
+     */
+    public List<ValidationResult> checkLicenses(Collection<LicenseCheck> checks, ZonedDateTime currentTime, Executor executor) {
+        // Index of the unique item checked for every input position
+        int[] uniqueIndexes = new int[checks.size()];
+        Map<LicenseCheck, Integer> uniqueIndexByCheck = new HashMap<>();
+        List<LicenseCheck> uniqueChecks = new ArrayList<>();
+        int position = 0;
+        for (LicenseCheck check : checks) {
+            Integer uniqueIndex = uniqueIndexByCheck.get(check);
+            if (uniqueIndex == null) {
+                uniqueIndex = uniqueChecks.size();
+                uniqueIndexByCheck.put(check, uniqueIndex);
+                uniqueChecks.add(check);
+            }
+            uniqueIndexes[position++] = uniqueIndex;
+        }
+
+        ValidationResult[] uniqueResults = new ValidationResult[uniqueChecks.size()];
+        Batches.runChunks(uniqueChecks.size(), executor, (from, to) -> checkLicenses(uniqueChecks, from, to, currentTime, uniqueResults));
+
+        ValidationResult[] results = new ValidationResult[uniqueIndexes.length];
+        for (int i = 0; i < uniqueIndexes.length; i++) {
+            results[i] = uniqueResults[uniqueIndexes[i]];
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    private void checkLicenses(List<LicenseCheck> checks, int from, int to, ZonedDateTime currentTime, ValidationResult[] results) {
+        for (int i = from; i < to; i++) {
+            LicenseCheck check = checks.get(i);
+            results[i] = checkLicenseBytes(check.getEnvelopeBytes(), check.getOrganizationID(), check.getProductPlanUniqueID(), check.getInstanceID(), currentTime);
+        }
+    }
+
     public boolean validateCertificate(String certificateDomain, ZonedDateTime currentTime) throws InvalidCertificateException {
+        return validateCertificate(certificateDomain, currentTime, null);
+    }
+
+    /**
+     * Validates the signing certificate together with the OCSP response stapled to it, usually the
+     * one carried by the license envelope, see {@link LicenseEnvelope#getOcspResponse()}.
+     */
+    public boolean validateCertificate(String certificateDomain, ZonedDateTime currentTime, byte[] ocspResponse) throws InvalidCertificateException {
         if (cert == null) {
             throw new InvalidCertificateException("signingCertificate is required to validate a certificate");
         }
 
-        // Validate the certificate
-        return CertificateUtils.verifyCertificate(cert, certificateDomain, currentTime, intermediateCerts);
+        Object event = ValidationEvents.begin(ValidationStage.CERTIFICATE_VERIFY);
+        String outcome = ValidationEvents.OUTCOME_INVALID_CERTIFICATE;
+        try {
+            if (certificateValidationCache == null) {
+                // Validate the certificate
+                boolean valid = CertificateUtils.verifyCertificate(cert, certificateDomain, currentTime, intermediateCerts, trustStore, ocspResponse);
+                outcome = ValidationEvents.OUTCOME_VALID;
+                return valid;
+            }
+
+            // Reuse a previous path validation for the same chain while it is still inside its validity window
+            byte[] fingerprint = getChainFingerprint();
+            long currentTimeMillis = currentTime.toInstant().toEpochMilli();
+            X509Certificate issuerCert = certificateValidationCache.getValidatedIssuer(fingerprint, certificateDomain, trustStore, currentTimeMillis);
+            if (issuerCert != null) {
+                CertificateUtils.verifyStapledOcsp(cert, issuerCert, ocspResponse, currentTime, trustStore);
+                outcome = ValidationEvents.OUTCOME_CACHED;
+                return true;
+            }
+
+            // Validate the certificate
+            long crlGeneration = CertificateValidationCache.crlGeneration(trustStore);
+            PKIXCertPathBuilderResult pathResult = CertificateUtils.verifyCertificatePath(cert, certificateDomain, currentTime, intermediateCerts, trustStore, ocspResponse);
+            certificateValidationCache.put(fingerprint, certificateDomain, trustStore, pathResult, crlGeneration, currentTimeMillis);
+            outcome = ValidationEvents.OUTCOME_VALID;
+            return true;
+        } finally {
+            ValidationEvents.end(event, outcome);
+        }
+    }
+
+    // Null when the certificate cannot be encoded, its signatures are then verified without the cache
+    private byte[] getCertFingerprint() {
+        byte[] fingerprint = certFingerprint;
+        if (fingerprint == null) {
+            try {
+                fingerprint = Fingerprints.sha256(cert);
+            } catch (InvalidCertificateException e) {
+                return null;
+            }
+            certFingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+
+    private byte[] getChainFingerprint() throws InvalidCertificateException {
+        byte[] fingerprint = chainFingerprint;
+        if (fingerprint == null) {
+            fingerprint = Fingerprints.sha256(cert, intermediateCerts);
+            chainFingerprint = fingerprint;
+        }
+        return fingerprint;
     }
 
     public static boolean validateLicense(String organizationID, String productPlanUniqueID) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
@@ -126,27 +543,58 @@ public class Validator {
     }   
 
     public static boolean validateLicenseWithOptions(ValidationOptions options) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
-        ValidatorConfig config = new ValidatorConfig(options.getInstanceID(), options.getCertPath(), options.getLicensePath());
-        Validator validator = new Validator(config);
-
         ZonedDateTime currentTime = ZonedDateTime.now(ZoneOffset.UTC);
         if (options.getCurrentTime() != null) {
             currentTime = options.getCurrentTime();
         }
 
-        if (!options.isSkipCertificateValidation()) {
-            if (!validator.validateCertificate(options.getCertificateDomain(), currentTime)) {
-                return false;
-            }
-        }
+        validateLicenseEnvelopeWithOptions(options, currentTime);
+        return true;
+    }
+
+    static LicenseEnvelope validateLicenseEnvelopeWithOptions(ValidationOptions options, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        ValidatorConfig config = new ValidatorConfig(options.getInstanceID(), options.getCertPath(), options.getLicensePath());
+        Validator validator = newValidator(config, options);
+        LicenseEnvelope envelope = readLicenseEnvelope(config);
+        validateLicenseEnvelope(validator, envelope, options, currentTime);
+        return envelope;
+    }
+
+    /**
+     * Creates a validator from the certificate file of the configuration. Failures only mean the
+     * file could not be read or parsed, the certificate itself is not validated yet.
+     */
+    static Validator newValidator(ValidatorConfig config, ValidationOptions options) throws InvalidCertificateException {
+        Validator validator = new Validator(config);
+        validator.setVerifyReserializedLicense(options.isVerifyReserializedLicense());
+        return validator;
+    }
 
+    /**
+     * Reads and decodes the license file of the configuration, without validating it.
+     */
+    static LicenseEnvelope readLicenseEnvelope(ValidatorConfig config) throws InvalidLicenseException {
         byte[] licenseBytes; 
+        Object event = ValidationEvents.begin(ValidationStage.FILE_READ);
         try {
             licenseBytes = Files.readAllBytes(Paths.get(config.getLicensePath()));    
         } catch (Exception e) {
+            ValidationEvents.end(event, ValidationEvents.OUTCOME_READ_ERROR);
             throw new InvalidLicenseException("Failed to read license file", e);
         }
+        ValidationEvents.end(event, ValidationEvents.OUTCOME_VALID);
+
+        // Decode the license envelope
+        return parse(() -> LicenseEnvelope.parseBytes(licenseBytes));
+    }
 
-        return validator.validateLicenseBytes(licenseBytes, options.getOrganizationID(), options.getProductPlanUniqueID(), options.getInstanceID(), currentTime);
+    static void validateLicenseEnvelope(Validator validator, LicenseEnvelope envelope, ValidationOptions options, ZonedDateTime currentTime) throws InvalidLicenseException, InvalidCertificateException, InvalidSignatureException {
+        // The certificate is validated with the OCSP response stapled to the envelope, if any
+        if (!options.isSkipCertificateValidation()) {
+            validator.validateCertificate(options.getCertificateDomain(), currentTime, envelope.getOcspResponse());
+        }
+
+        // Validate the license
+        validator.validateLicense(envelope, options.getOrganizationID(), options.getProductPlanUniqueID(), options.getInstanceID(), currentTime);
     }
 }
@@ -0,0 +1,50 @@
+package com.omnistrate.licensing.validation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emits a {@link StageEvent} per validation stage. Loaded by {@link ValidationEvents} when running
+ * on Java 11 or later.
+ */
+final class JfrValidationEvents extends ValidationEvents {
+
+    @Override
+    Object start(ValidationStage stage) {
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.stage = stage.name();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void finish(Object event, String outcome) {
+        StageEvent stageEvent = (StageEvent) event;
+        stageEvent.end();
+        if (stageEvent.shouldCommit()) {
+            stageEvent.outcome = outcome;
+            stageEvent.commit();
+        }
+    }
+
+    @Name("com.omnistrate.licensing.ValidationStage")
+    @Label("License Validation Stage")
+    @Description("Duration and outcome of one stage of a license validation")
+    @Category({"Omnistrate", "Licensing"})
+    @StackTrace(false)
+    static final class StageEvent extends Event {
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Outcome")
+        String outcome;
+    }
+}
@@ -0,0 +1,47 @@
+package com.omnistrate.licensing.certificate;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves virtual threads from a bounded pool of engines shared by all of them, platform threads
+ * keep their per-thread engine. Loaded by {@link EngineCache} when running on Java 21 or later.
+ */
+final class PooledEngineCache<T> extends EngineCache<T> {
+
+    // Engines are only held during CPU-bound work, so about one per carrier thread is in use at a time
+    private static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final ConcurrentLinkedQueue<T> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    PooledEngineCache(Factory<T> factory) {
+        super(factory);
+    }
+
+    @Override
+    T acquire() throws NoSuchAlgorithmException {
+        if (!Thread.currentThread().isVirtual()) {
+            return super.acquire();
+        }
+        T engine = pool.poll();
+        if (engine == null) {
+            return newEngine();
+        }
+        pooled.decrementAndGet();
+        return engine;
+    }
+
+    @Override
+    void release(T engine) {
+        if (!Thread.currentThread().isVirtual()) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= MAX_POOLED) {
+            pool.offer(engine);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
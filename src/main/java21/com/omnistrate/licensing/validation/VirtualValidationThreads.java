@@ -0,0 +1,25 @@
+package com.omnistrate.licensing.validation;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the background and batch validation paths on virtual threads. Loaded by
+ * {@link ValidationThreads} when running on Java 21 or later.
+ */
+final class VirtualValidationThreads extends ValidationThreads {
+
+    private final ThreadFactory batchThreads = Thread.ofVirtual().name("omnistrate-license-batch-", 1).factory();
+
+    @Override
+    ThreadFactory newThreadFactory(String namePrefix) {
+        // Virtual threads are always daemon threads
+        return Thread.ofVirtual().name(namePrefix + "-", 1).factory();
+    }
+
+    @Override
+    Executor newBatchExecutor() {
+        // One virtual thread per chunk, scheduled on the virtual thread carriers rather than the common pool
+        return runnable -> batchThreads.newThread(runnable).start();
+    }
+}
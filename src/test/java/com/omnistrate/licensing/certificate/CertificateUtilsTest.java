@@ -1,8 +1,19 @@
 package com.omnistrate.licensing.certificate;
 
+import com.omnistrate.licensing.common.InvalidCertificateException;
+import com.omnistrate.licensing.common.InvalidPrivateKeyException;
+
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.Security;
 import java.security.cert.X509Certificate;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
@@ -161,6 +172,32 @@ public class CertificateUtilsTest {
         }
     }
 
+    @Test
+    public void testLoadPrivateKeyFormats() {
+        try {
+            // PKCS#8 keys are parsed by the JDK key factory
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            PrivateKey pkcs8Key = CertificateUtils.loadPrivateKeyFromBytes(keyPair.getPrivate().getEncoded());
+            assertEquals(keyPair.getPrivate(), pkcs8Key);
+
+            // PKCS#1 keys fall back to Bouncy Castle, which is registered on that first use
+            PrivateKey pkcs1Key = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+            assertNotNull(pkcs1Key);
+            Provider provider = CertificateUtils.registerBouncyCastleProvider();
+            assertSame(provider, Security.getProvider("BC"));
+
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            byte[] data = "Test data".getBytes(StandardCharsets.UTF_8);
+            assertTrue(CertificateUtils.verifySignature(cert, CertificateUtils.sign(pkcs1Key, data), data));
+
+            assertThrows(InvalidPrivateKeyException.class, () -> CertificateUtils.loadPrivateKeyFromBytes(new byte[] {1, 2, 3}));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
     @Test
     public void testSignAndVerify() {
         try {
@@ -209,6 +246,27 @@ public class CertificateUtilsTest {
         }
     }
 
+    @Test
+    public void testLoadCertificateChainFromBufferAndStream() {
+        try {
+            byte[] certBytes = TEST_CERTIFICATE.getBytes(StandardCharsets.US_ASCII);
+            List<X509Certificate> expected = CertificateUtils.loadCertificateChainFromBytes(certBytes);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(certBytes.length);
+            direct.put(certBytes).flip();
+            assertEquals(expected, CertificateUtils.loadCertificateChainFromBuffer(direct));
+            assertEquals(0, direct.position());
+            assertEquals(expected, CertificateUtils.loadCertificateChainFromBuffer(ByteBuffer.wrap(certBytes)));
+            assertEquals(expected, CertificateUtils.loadCertificateChainFromStream(new ByteArrayInputStream(certBytes)));
+            assertEquals(expected, CertificateUtils.loadCertificateChainFromChannel(Channels.newChannel(new ByteArrayInputStream(certBytes))));
+
+            ByteBuffer garbage = ByteBuffer.allocateDirect(16);
+            assertThrows(InvalidCertificateException.class, () -> CertificateUtils.loadCertificateChainFromBuffer(garbage));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
     @Test
     public void testLoadPublicCertificateFromBytes() {
         try {
@@ -242,4 +300,22 @@ public class CertificateUtilsTest {
             fail("Exception should not be thrown: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testVerifyReusesEngineAcrossCalls() {
+        try {
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+            byte[] dataBytes = "Test data".getBytes();
+            byte[] signature = CertificateUtils.sign(privateKey, dataBytes);
+
+            // A failed verification must not leave state behind on the per-thread engine
+            assertThrows(Exception.class, () -> CertificateUtils.verifySignature(cert, "short".getBytes(), dataBytes));
+            assertFalse(CertificateUtils.verifySignature(cert, signature, "Wrong data".getBytes()));
+            assertTrue(CertificateUtils.verifySignature(cert, signature, dataBytes));
+            assertTrue(CertificateUtils.verifySignature(cert, signature, dataBytes));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,227 @@
+package com.omnistrate.licensing.certificate;
+
+import com.omnistrate.licensing.common.InvalidCertificateException;
+import com.omnistrate.licensing.validation.CertificateValidationCache;
+import com.omnistrate.licensing.validation.Validator;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CrlStoreTest {
+
+    private static final String DOMAIN = "licensing.crl.local";
+    private static final String ROOT = "CN=CRL Test Root";
+
+    private static KeyPair rootKeyPair;
+    private static X509Certificate rootCert;
+    private static X509Certificate leafCert;
+    private static X509Certificate otherLeafCert;
+    private static ZonedDateTime currentTime;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        currentTime = ZonedDateTime.now(ZoneOffset.UTC);
+        rootKeyPair = TestCertificates.generateKeyPair();
+        rootCert = TestCertificates.issueCa(ROOT, ROOT, rootKeyPair.getPublic(), rootKeyPair.getPrivate(), "SHA256withRSA", BigInteger.ONE);
+        leafCert = issueLeafCertificate(BigInteger.valueOf(1001));
+        otherLeafCert = issueLeafCertificate(BigInteger.valueOf(1002));
+    }
+
+    @Test
+    public void testRevokedCertificateIsRejected() {
+        try {
+            Path crlPath = Files.write(directory.resolve("root.crl"), toPem(rootKeyPair.getPrivate(), leafCert.getSerialNumber()));
+            TrustStore trustStore = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(crlPath)).build();
+
+            InvalidCertificateException e = assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+            assertTrue(e.getMessage().contains("revoked"));
+            assertNotNull(CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+
+            // Revocation only applies from the revocation date on
+            assertNotNull(CertificateUtils.verifyCertificatePath(leafCert, DOMAIN, currentTime.minusHours(2), Collections.emptyList(), trustStore));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReloadsChangedFiles() {
+        try {
+            Path crlPath = Files.write(directory.resolve("root.crl"), toPem(rootKeyPair.getPrivate()));
+            CrlStore crlStore = CrlStore.load(crlPath, 0);
+            TrustStore trustStore = new TrustStore.Builder().trustAnchor(rootCert).crlStore(crlStore).build();
+            assertNotNull(CertificateUtils.verifyCertificatePath(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+            long generation = crlStore.getGeneration();
+            assertEquals(generation, crlStore.getGeneration());
+
+            Files.write(crlPath, toPem(rootKeyPair.getPrivate(), leafCert.getSerialNumber(), otherLeafCert.getSerialNumber()));
+            assertNotEquals(generation, crlStore.getGeneration());
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReloadInvalidatesCachedValidations() {
+        try {
+            Path crlPath = Files.write(directory.resolve("root.crl"), toPem(rootKeyPair.getPrivate()));
+            TrustStore trustStore = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(crlPath, 0)).build();
+            CertificateValidationCache cache = new CertificateValidationCache(Duration.ofMinutes(5), 16);
+            Validator validator = new Validator(leafCert, Collections.<X509Certificate>emptyList(), trustStore, cache);
+
+            assertTrue(validator.validateCertificate(DOMAIN, currentTime));
+            assertTrue(validator.validateCertificate(DOMAIN, currentTime));
+            assertEquals(1, cache.size());
+
+            Files.write(crlPath, toPem(rootKeyPair.getPrivate(), leafCert.getSerialNumber()));
+            assertThrows(InvalidCertificateException.class, () -> validator.validateCertificate(DOMAIN, currentTime));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFailsClosed() {
+        try {
+            // A CRL that does not verify with the issuer key rejects every certificate of that issuer
+            Path forgedPath = Files.write(directory.resolve("forged.crl"), toPem(TestCertificates.generateKeyPair().getPrivate()));
+            TrustStore forged = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(forgedPath)).build();
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), forged));
+
+            // Files that cannot be parsed are rejected on load, and after a reload
+            Path garbagePath = Files.write(directory.resolve("garbage.crl"), "not a crl".getBytes("UTF-8"));
+            assertThrows(InvalidCertificateException.class, () -> CrlStore.load(garbagePath));
+            assertThrows(InvalidCertificateException.class, () -> CrlStore.load(directory.resolve("missing.crl")));
+
+            Path crlPath = Files.write(directory.resolve("root.crl"), toPem(rootKeyPair.getPrivate()));
+            TrustStore trustStore = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(crlPath, 0)).build();
+            assertNotNull(CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+            Files.write(crlPath, "truncated".getBytes("UTF-8"));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStaleCrlFailsClosed() {
+        try {
+            // Not rotated since its next update
+            Path expiredPath = Files.write(directory.resolve("expired.crl"), toPem(rootKeyPair.getPrivate(), currentTime.minusHours(20), currentTime.minusHours(10)));
+            TrustStore expired = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(expiredPath)).build();
+            InvalidCertificateException e = assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), expired));
+            assertTrue(e.getMessage().contains("not current"));
+            assertNotNull(CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime.minusHours(15), Collections.emptyList(), expired));
+
+            // Issued after the validation date
+            Path futurePath = Files.write(directory.resolve("future.crl"), toPem(rootKeyPair.getPrivate(), currentTime.plusDays(1), currentTime.plusDays(7)));
+            TrustStore future = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(futurePath)).build();
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), future));
+
+            // Without a next update the CRL can never be shown to be current
+            Path openPath = Files.write(directory.resolve("open.crl"), toPem(rootKeyPair.getPrivate(), currentTime.minusDays(1), null));
+            TrustStore open = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(openPath)).build();
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), open));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCachedValidationsFollowCrlDates() {
+        try {
+            // One validator with the default cache, validating before and after the CRL dates
+            Path crlPath = Files.write(directory.resolve("root.crl"), toPem(rootKeyPair.getPrivate(), currentTime.minusDays(1), currentTime.plusHours(1), leafCert.getSerialNumber()));
+            TrustStore trustStore = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(crlPath)).build();
+            Validator validator = new Validator(otherLeafCert, Collections.<X509Certificate>emptyList(), trustStore);
+            assertTrue(validator.validateCertificate(DOMAIN, currentTime));
+            assertTrue(validator.validateCertificate(DOMAIN, currentTime));
+            InvalidCertificateException e = assertThrows(InvalidCertificateException.class,
+                () -> validator.validateCertificate(DOMAIN, currentTime.plusHours(2)));
+            assertTrue(e.getMessage().contains("not current"));
+
+            // Validated before its revocation date, the certificate is rejected from that date on
+            Validator revoked = new Validator(leafCert, Collections.<X509Certificate>emptyList(), trustStore);
+            assertTrue(revoked.validateCertificate(DOMAIN, currentTime.minusHours(2)));
+            e = assertThrows(InvalidCertificateException.class, () -> revoked.validateCertificate(DOMAIN, currentTime));
+            assertTrue(e.getMessage().contains("revoked"));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoadDirectory() {
+        try {
+            Path crlDirectory = Files.createDirectory(directory.resolve("crls"));
+            Files.write(crlDirectory.resolve("first.crl"), toPem(rootKeyPair.getPrivate(), leafCert.getSerialNumber()));
+            Files.write(crlDirectory.resolve("second.crl"), toPem(rootKeyPair.getPrivate()));
+            // Hidden entries, such as the metadata of mounted volumes, are skipped
+            Files.write(crlDirectory.resolve(".hidden"), "not a crl".getBytes("UTF-8"));
+
+            TrustStore trustStore = new TrustStore.Builder().trustAnchor(rootCert).crlStore(CrlStore.load(crlDirectory)).build();
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificatePath(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+            assertNotNull(CertificateUtils.verifyCertificatePath(otherLeafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    private static X509Certificate issueLeafCertificate(BigInteger serial) throws Exception {
+        return TestCertificates.issueEndEntity(ROOT, "CN=" + DOMAIN, TestCertificates.generateKeyPair().getPublic(), rootKeyPair.getPrivate(), "SHA256withRSA", serial, DOMAIN);
+    }
+
+    private static byte[] toPem(PrivateKey signingKey, BigInteger... revokedSerials) throws Exception {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        return toPem(signingKey, now.minusDays(1), now.plusDays(7), revokedSerials);
+    }
+
+    private static byte[] toPem(PrivateKey signingKey, ZonedDateTime thisUpdate, ZonedDateTime nextUpdate, BigInteger... revokedSerials) throws Exception {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name(ROOT), Date.from(thisUpdate.toInstant()));
+        if (nextUpdate != null) {
+            builder.setNextUpdate(Date.from(nextUpdate.toInstant()));
+        }
+        for (BigInteger serial : revokedSerials) {
+            builder.addCRLEntry(serial, Date.from(now.minusHours(1).toInstant()), CRLReason.keyCompromise);
+        }
+        byte[] encoded = builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(signingKey)).getEncoded();
+        return ("-----BEGIN X509 CRL-----\n"
+            + Base64.getMimeEncoder(64, new byte[] {'\n'}).encodeToString(encoded)
+            + "\n-----END X509 CRL-----\n").getBytes("UTF-8");
+    }
+}
@@ -0,0 +1,149 @@
+package com.omnistrate.licensing.certificate;
+
+import com.omnistrate.licensing.common.InvalidPrivateKeyException;
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.common.SignatureAlgorithm;
+import com.omnistrate.licensing.common.ValidationResult;
+import com.omnistrate.licensing.validation.Validator;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignatureAlgorithmTest {
+
+    // Unregistered, only used to build test certificates on Java versions without Ed25519
+    private static final Provider BC = new BouncyCastleProvider();
+
+    @Test
+    public void testSignAndVerify() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            byte[] data = license.toBytes();
+
+            for (SignatureAlgorithm algorithm : SignatureAlgorithm.values()) {
+                KeyPair keyPair = generateKeyPair(algorithm);
+                X509Certificate cert = issueCertificate(keyPair, algorithm);
+                assertEquals(algorithm, SignatureAlgorithm.forKey(keyPair.getPrivate()));
+                assertEquals(algorithm, SignatureAlgorithm.forKey(cert.getPublicKey()));
+
+                byte[] signature = CertificateUtils.sign(keyPair.getPrivate(), data);
+                assertTrue(CertificateUtils.verifySignature(cert, signature, data), algorithm.name());
+                assertTrue(CertificateUtils.verifySignature(cert, algorithm, signature, data), algorithm.name());
+                assertFalse(CertificateUtils.verifySignature(cert, signature, "other data".getBytes(StandardCharsets.UTF_8)), algorithm.name());
+
+                Signer signer = new Signer(keyPair.getPrivate());
+                assertEquals(algorithm, signer.getAlgorithm());
+                LicenseEnvelope envelope = signer.sign(license);
+                // RS256 envelopes do not name their algorithm
+                assertEquals(algorithm == SignatureAlgorithm.RS256 ? null : algorithm, envelope.getAlgorithm());
+
+                Validator validator = new Validator(cert, Collections.<X509Certificate>emptyList());
+                assertTrue(validator.validateLicenseBytes(envelope.toBytes(), "orgID", "SKU", "instance-1", now), algorithm.name());
+                assertTrue(validator.validateLicenseBytes(envelope.toBinary(), "orgID", "SKU", "instance-1", now), algorithm.name());
+                assertEquals(algorithm == SignatureAlgorithm.RS256 ? null : algorithm, LicenseEnvelope.parseBytes(envelope.toBytes()).getAlgorithm());
+            }
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAlgorithmMustMatchCertificate() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            KeyPair keyPair = generateKeyPair(SignatureAlgorithm.EdDSA);
+            X509Certificate cert = issueCertificate(keyPair, SignatureAlgorithm.EdDSA);
+            byte[] signature = CertificateUtils.sign(keyPair.getPrivate(), license.toBytes());
+            Validator validator = new Validator(cert, Collections.<X509Certificate>emptyList());
+
+            // An envelope naming another algorithm than the certificate key is rejected, not verified with either
+            for (SignatureAlgorithm other : new SignatureAlgorithm[] {SignatureAlgorithm.RS256, SignatureAlgorithm.ES256}) {
+                LicenseEnvelope envelope = LicenseEnvelope.parseBytes(new LicenseEnvelope(license, signature, other).toBytes());
+                ValidationResult result = validator.checkLicense(envelope, "orgID", "SKU", "instance-1", now);
+                assertEquals(ValidationResult.Reason.SIGNATURE_ERROR, result.getReason());
+            }
+            LicenseEnvelope unnamed = LicenseEnvelope.parseBytes(new LicenseEnvelope(license, signature).toBytes());
+            assertTrue(validator.checkLicense(unnamed, "orgID", "SKU", "instance-1", now).isValid());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoadPrivateKeys() {
+        try {
+            for (SignatureAlgorithm algorithm : SignatureAlgorithm.values()) {
+                KeyPair keyPair = generateKeyPair(algorithm);
+                PrivateKey loaded = CertificateUtils.loadPrivateKeyFromBytes(keyPair.getPrivate().getEncoded());
+                assertEquals(algorithm, SignatureAlgorithm.forKey(loaded));
+                assertArrayEquals(keyPair.getPrivate().getEncoded(), loaded.getEncoded());
+            }
+
+            // Other EC curves are not supported
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(384);
+            PrivateKey p384Key = generator.generateKeyPair().getPrivate();
+            assertNull(SignatureAlgorithm.forKey(p384Key));
+            assertThrows(InvalidPrivateKeyException.class, () -> CertificateUtils.sign(p384Key, new byte[] {1}));
+
+            assertEquals(SignatureAlgorithm.EdDSA, SignatureAlgorithm.fromIdentifier("EdDSA"));
+            assertNull(SignatureAlgorithm.fromIdentifier("HS256"));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    private static KeyPair generateKeyPair(SignatureAlgorithm algorithm) throws Exception {
+        switch (algorithm) {
+            case ES256:
+                KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+                ecGenerator.initialize(256);
+                return ecGenerator.generateKeyPair();
+            case EdDSA:
+                try {
+                    return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+                } catch (NoSuchAlgorithmException e) {
+                    // Java 14 and earlier
+                    return KeyPairGenerator.getInstance("Ed25519", BC).generateKeyPair();
+                }
+            default:
+                KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+                rsaGenerator.initialize(2048);
+                return rsaGenerator.generateKeyPair();
+        }
+    }
+
+    private static X509Certificate issueCertificate(KeyPair keyPair, SignatureAlgorithm algorithm) throws Exception {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        return new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(
+            new X500Name("CN=Signature Algorithm Test"),
+            BigInteger.ONE,
+            Date.from(now.minusDays(1).toInstant()),
+            Date.from(now.plusDays(30).toInstant()),
+            new X500Name("CN=Signature Algorithm Test"),
+            keyPair.getPublic())
+            .build(new JcaContentSignerBuilder(algorithm.getJcaName()).setProvider(BC).build(keyPair.getPrivate())));
+    }
+}
@@ -0,0 +1,203 @@
+package com.omnistrate.licensing.certificate;
+
+import com.omnistrate.licensing.common.InvalidCertificateException;
+import com.omnistrate.licensing.common.License;
+import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.validation.CertificateValidationCache;
+import com.omnistrate.licensing.validation.Validator;
+
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StapledOcspTest {
+
+    private static final String DOMAIN = "licensing.ocsp.local";
+    private static final String ROOT = "CN=OCSP Test Root";
+
+    private static KeyPair rootKeyPair;
+    private static KeyPair responderKeyPair;
+    private static X509Certificate rootCert;
+    private static X509Certificate leafCert;
+    private static X509Certificate responderCert;
+    private static X509Certificate unauthorizedResponderCert;
+    private static TrustStore trustStore;
+    private static ZonedDateTime currentTime;
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        currentTime = ZonedDateTime.now(ZoneOffset.UTC);
+        rootKeyPair = TestCertificates.generateKeyPair();
+        responderKeyPair = TestCertificates.generateKeyPair();
+        rootCert = TestCertificates.issueCa(ROOT, ROOT, rootKeyPair.getPublic(), rootKeyPair.getPrivate(), "SHA256withRSA", BigInteger.ONE);
+        leafCert = TestCertificates.issueEndEntity(ROOT, "CN=" + DOMAIN, TestCertificates.generateKeyPair().getPublic(), rootKeyPair.getPrivate(), "SHA256withRSA", BigInteger.valueOf(2001), DOMAIN);
+        responderCert = TestCertificates.issueEndEntity(ROOT, "CN=OCSP Responder", responderKeyPair.getPublic(), rootKeyPair.getPrivate(), "SHA256withRSA", BigInteger.valueOf(3001), DOMAIN, KeyPurposeId.id_kp_OCSPSigning);
+        unauthorizedResponderCert = TestCertificates.issueEndEntity(ROOT, "CN=OCSP Responder", responderKeyPair.getPublic(), rootKeyPair.getPrivate(), "SHA256withRSA", BigInteger.valueOf(3002), DOMAIN);
+        trustStore = new TrustStore.Builder().trustAnchor(rootCert).build();
+    }
+
+    @Test
+    public void testGoodResponse() {
+        try {
+            byte[] issuerSigned = ocspResponse(rootKeyPair.getPrivate(), null, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertTrue(CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, issuerSigned));
+
+            // A delegated responder certificate issued by the issuer for OCSP signing
+            byte[] delegated = ocspResponse(responderKeyPair.getPrivate(), responderCert, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertTrue(CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, delegated));
+
+            // The parsed status is reused for the same response until its nextUpdate
+            int cached = StapledOcsp.cachedCount();
+            assertTrue(CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, delegated));
+            assertEquals(cached, StapledOcsp.cachedCount());
+
+            // Cached or not, the response is not used past its nextUpdate
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime.plusDays(2), Collections.emptyList(), trustStore, delegated));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDelegatedResponderWithOtherKeyType() {
+        try {
+            // An EC issuer delegating to an RSA responder, whose response the issuer key cannot verify
+            KeyPair ecRootKeyPair = TestCertificates.generateKeyPair("EC", 256);
+            X509Certificate ecRootCert = TestCertificates.issueCa(ROOT, ROOT, ecRootKeyPair.getPublic(), ecRootKeyPair.getPrivate(), "SHA256withECDSA", BigInteger.ONE);
+            X509Certificate ecLeafCert = TestCertificates.issueEndEntity(ROOT, "CN=" + DOMAIN, TestCertificates.generateKeyPair().getPublic(), ecRootKeyPair.getPrivate(), "SHA256withECDSA", BigInteger.valueOf(2101), DOMAIN);
+            X509Certificate rsaResponderCert = TestCertificates.issueEndEntity(ROOT, "CN=OCSP Responder", responderKeyPair.getPublic(), ecRootKeyPair.getPrivate(), "SHA256withECDSA", BigInteger.valueOf(3101), DOMAIN, KeyPurposeId.id_kp_OCSPSigning);
+            TrustStore ecTrustStore = new TrustStore.Builder().trustAnchor(ecRootCert).build();
+
+            byte[] delegated = ocspResponse(ecRootCert, ecLeafCert, responderKeyPair.getPrivate(), rsaResponderCert, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertTrue(CertificateUtils.verifyCertificate(ecLeafCert, DOMAIN, currentTime, Collections.emptyList(), ecTrustStore, delegated));
+
+            // Without a responder certificate the mismatched signature is still rejected
+            byte[] unsigned = ocspResponse(ecRootCert, ecLeafCert, responderKeyPair.getPrivate(), null, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(ecLeafCert, DOMAIN, currentTime, Collections.emptyList(), ecTrustStore, unsigned));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRejectedResponses() {
+        try {
+            byte[] revoked = ocspResponse(rootKeyPair.getPrivate(), null,
+                new RevokedStatus(Date.from(currentTime.minusHours(1).toInstant()), CRLReason.keyCompromise), currentTime.plusDays(1));
+            InvalidCertificateException e = assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, revoked));
+            assertTrue(e.getMessage().contains("revoked"));
+
+            byte[] unknown = ocspResponse(rootKeyPair.getPrivate(), null, new UnknownStatus(), currentTime.plusDays(1));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, unknown));
+
+            byte[] stale = ocspResponse(rootKeyPair.getPrivate(), null, CertificateStatus.GOOD, currentTime.minusMinutes(1));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, stale));
+
+            // Without nextUpdate the response would never expire, so it is not accepted at any time
+            byte[] open = ocspResponse(rootKeyPair.getPrivate(), null, CertificateStatus.GOOD, null);
+            e = assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, open));
+            assertTrue(e.getMessage().contains("nextUpdate"));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime.plusDays(30), Collections.emptyList(), trustStore, open));
+
+            byte[] forged = ocspResponse(TestCertificates.generateKeyPair().getPrivate(), null, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, forged));
+
+            // A responder certificate without the OCSP signing extended key usage is not authorized
+            byte[] unauthorized = ocspResponse(responderKeyPair.getPrivate(), unauthorizedResponderCert, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, unauthorized));
+
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), trustStore, new byte[] {1, 2, 3}));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRequiredResponse() {
+        try {
+            TrustStore requiring = new TrustStore.Builder().trustAnchor(rootCert).requireStapledOcsp(true).build();
+            assertThrows(InvalidCertificateException.class,
+                () -> CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), requiring));
+            byte[] good = ocspResponse(rootKeyPair.getPrivate(), null, CertificateStatus.GOOD, currentTime.plusDays(1));
+            assertTrue(CertificateUtils.verifyCertificate(leafCert, DOMAIN, currentTime, Collections.emptyList(), requiring, good));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidatorWithEnvelopeResponse() {
+        try {
+            byte[] good = ocspResponse(rootKeyPair.getPrivate(), null, CertificateStatus.GOOD, currentTime.plusDays(1));
+            byte[] revoked = ocspResponse(rootKeyPair.getPrivate(), null,
+                new RevokedStatus(Date.from(currentTime.minusHours(1).toInstant()), CRLReason.keyCompromise), currentTime.plusDays(1));
+            License license = new License("org-id", "plan-id", "instance-id", "sub-id", "desc", currentTime.minusDays(1), currentTime.plusDays(1));
+            LicenseEnvelope envelope = LicenseEnvelope.parseBytes(new LicenseEnvelope(license, new byte[] {1}, good).toBytes());
+            assertArrayEquals(good, envelope.getOcspResponse());
+
+            CertificateValidationCache cache = new CertificateValidationCache(Duration.ofMinutes(5), 16);
+            Validator validator = new Validator(leafCert, Collections.<X509Certificate>emptyList(), trustStore, cache);
+            assertTrue(validator.validateCertificate(DOMAIN, currentTime, envelope.getOcspResponse()));
+            assertEquals(1, cache.size());
+
+            // A cached path validation is still checked against the response presented with it
+            assertTrue(validator.validateCertificate(DOMAIN, currentTime, envelope.getOcspResponse()));
+            assertThrows(InvalidCertificateException.class, () -> validator.validateCertificate(DOMAIN, currentTime, revoked));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    private static byte[] ocspResponse(PrivateKey signingKey, X509Certificate signerCert, CertificateStatus status, ZonedDateTime nextUpdate) throws Exception {
+        return ocspResponse(rootCert, leafCert, signingKey, signerCert, status, nextUpdate);
+    }
+
+    private static byte[] ocspResponse(X509Certificate issuerCert, X509Certificate cert, PrivateKey signingKey, X509Certificate signerCert, CertificateStatus status, ZonedDateTime nextUpdate) throws Exception {
+        DigestCalculatorProvider digestCalculatorProvider = new JcaDigestCalculatorProviderBuilder().build();
+        CertificateID certificateID = new CertificateID(digestCalculatorProvider.get(CertificateID.HASH_SHA1),
+            new JcaX509CertificateHolder(issuerCert), cert.getSerialNumber());
+        BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(
+            signerCert != null ? signerCert.getPublicKey() : issuerCert.getPublicKey(),
+            digestCalculatorProvider.get(CertificateID.HASH_SHA1));
+        builder.addResponse(certificateID, status, Date.from(currentTime.minusHours(1).toInstant()), nextUpdate != null ? Date.from(nextUpdate.toInstant()) : null);
+        X509CertificateHolder[] chain = signerCert != null ? new X509CertificateHolder[] {new JcaX509CertificateHolder(signerCert)} : null;
+        BasicOCSPResp basic = builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(signingKey), chain, new Date());
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basic).getEncoded();
+    }
+}
@@ -0,0 +1,83 @@
+package com.omnistrate.licensing.certificate;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+/**
+ * Key pairs and certificates for tests that build their own certificate hierarchy, valid from a
+ * day ago for a year.
+ */
+final class TestCertificates {
+
+    private TestCertificates() {
+    }
+
+    static KeyPair generateKeyPair() throws Exception {
+        return generateKeyPair("RSA", 2048);
+    }
+
+    static KeyPair generateKeyPair(String algorithm, int keySize) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm);
+        generator.initialize(keySize);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Issues a CA certificate that can sign certificates and CRLs.
+     */
+    static X509Certificate issueCa(String issuer, String subject, PublicKey subjectKey, PrivateKey issuerKey, String signatureAlgorithm, BigInteger serial) throws Exception {
+        X509v3CertificateBuilder builder = newBuilder(issuer, subject, subjectKey, serial);
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        return sign(builder, issuerKey, signatureAlgorithm);
+    }
+
+    /**
+     * Issues an end entity certificate for the DNS name, with the given extended key usages if any.
+     */
+    static X509Certificate issueEndEntity(String issuer, String subject, PublicKey subjectKey, PrivateKey issuerKey, String signatureAlgorithm, BigInteger serial, String dnsName, KeyPurposeId... extendedKeyUsages) throws Exception {
+        X509v3CertificateBuilder builder = newBuilder(issuer, subject, subjectKey, serial);
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature));
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(new GeneralName(GeneralName.dNSName, dnsName)));
+        if (extendedKeyUsages.length > 0) {
+            builder.addExtension(Extension.extendedKeyUsage, false, new ExtendedKeyUsage(extendedKeyUsages));
+        }
+        return sign(builder, issuerKey, signatureAlgorithm);
+    }
+
+    private static X509v3CertificateBuilder newBuilder(String issuer, String subject, PublicKey subjectKey, BigInteger serial) {
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        return new JcaX509v3CertificateBuilder(
+            new X500Name(issuer),
+            serial,
+            Date.from(now.minusDays(1).toInstant()),
+            Date.from(now.plusYears(1).toInstant()),
+            new X500Name(subject),
+            subjectKey);
+    }
+
+    private static X509Certificate sign(X509v3CertificateBuilder builder, PrivateKey issuerKey, String signatureAlgorithm) throws Exception {
+        return new JcaX509CertificateConverter().getCertificate(builder.build(new JcaContentSignerBuilder(signatureAlgorithm).build(issuerKey)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.omnistrate.licensing.certificate;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrustStoreTest {
+
+    private static final String TEST_CERTIFICATE = "-----BEGIN CERTIFICATE-----\n" +
+        "MIIFCjCCA/KgAwIBAgISBIalD5cMH3mevZGYjxxIAFOFMA0GCSqGSIb3DQEBCwUA\n" +
+        "MDMxCzAJBgNVBAYTAlVTMRYwFAYDVQQKEw1MZXQncyBFbmNyeXB0MQwwCgYDVQQD\n" +
+        "EwNSMTEwHhcNMjUwMjExMTQxMDM5WhcNMjUwNTEyMTQxMDM4WjAoMSYwJAYDVQQD\n" +
+        "Ex1saWNlbnNpbmctdGVzdC5vbW5pc3RyYXRlLmRldjCCASIwDQYJKoZIhvcNAQEB\n" +
+        "BQADggEPADCCAQoCggEBANrjkfEo81CuqyTdinRso3PtIcvXj9KRIZ/JXG+T1wHQ\n" +
+        "/qWEg0bDSq1hsMy+oRhgD4iV0UJZ65iK1RLWvapH9lDp6+VSPjlPLCnk6BTpwDlT\n" +
+        "A86em85qD3IjPf1iI/+7FClC2byavFqr/G2zpEvhELb+On/tHgl8oXe6nqSz/kzt\n" +
+        "FiPmEh9IyJ4KzARvyEODemfHNRlezfUKOX6YcGfVOOlngsIhtMYfOHv8QxkQ63wX\n" +
+        "CM9DiCo7+V0nOTxyC8c3Nakem44saHqe7wLYuXKXm9SMk+feePTIiBmjbQJLz8uO\n" +
+        "lwurRuBM2Hsg9w8OP3FrkKIK3XPm11edmeHwQZOS6h8CAwEAAaOCAiEwggIdMA4G\n" +
+        "A1UdDwEB/wQEAwIFoDAdBgNVHSUEFjAUBggrBgEFBQcDAQYIKwYBBQUHAwIwDAYD\n" +
+        "VR0TAQH/BAIwADAdBgNVHQ4EFgQUOhVq75FYA2NjKPvSkU/tz6VzTukwHwYDVR0j\n" +
+        "BBgwFoAUxc9GpOr0w8B6bJXELbBeki8m47kwVwYIKwYBBQUHAQEESzBJMCIGCCsG\n" +
+        "AQUFBzABhhZodHRwOi8vcjExLm8ubGVuY3Iub3JnMCMGCCsGAQUFBzAChhdodHRw\n" +
+        "Oi8vcjExLmkubGVuY3Iub3JnLzAoBgNVHREEITAfgh1saWNlbnNpbmctdGVzdC5v\n" +
+        "bW5pc3RyYXRlLmRldjATBgNVHSAEDDAKMAgGBmeBDAECATCCAQQGCisGAQQB1nkC\n" +
+        "BAIEgfUEgfIA8AB1AMz7D2qFcQll/pWbU87psnwi6YVcDZeNtql+VMD+TA2wAAAB\n" +
+        "lPWOlQ0AAAQDAEYwRAIgY4ITX6sdDjREvaXIoitgO6EKP2pSSy1noQMJwEnaRnAC\n" +
+        "ICkxKoaxpBUChDK0l2olkohMy4BLRBhrZ4aoNswWtbZ0AHcAzxFW7tUufK/zh1vZ\n" +
+        "aS6b6RpxZ0qwF+ysAdJbd87MOwgAAAGU9Y6VMgAABAMASDBGAiEAiSPhxVJpmcA/\n" +
+        "WLwi+Av87bPwjpY0oEQtHJNNf8blmqMCIQDrbJue/LOb6HfTni/2A74sCU8+V+bO\n" +
+        "IdTCbUjAcZG5kzANBgkqhkiG9w0BAQsFAAOCAQEAQ+GRLVEX6+3ZrgK49mOc23Ne\n" +
+        "UNTg82Rwh9AerKHBnwNLS0sR6M93GxiYrWW0JH71YwZuLQlHwFYjq8c4zY/xqZs4\n" +
+        "/DrPz/cwlSuw2jdtUo3Tt9Mh/xTVuCWsjJVHm42VqRulGYtS5IA2VRjDikCay/1l\n" +
+        "qAM2hKAUy8pMQ9+SechHZYWi8YVcp+RgnKB3qtbqFDbFMMbEEDao7Y1DFh4TwXdh\n" +
+        "k/akWnY4eLILCSfZ+9zkt4GL2J7wU5k1P4+p6lxRyG8WF/2klTP3MreeGv4NXFNu\n" +
+        "1euwTONgE5mpWBAZ4GxR3UFQ37Q9kENFzsks4drS2j7JWZqUMR6OoICtrzqJHw==\n" +
+        "-----END CERTIFICATE-----";
+
+    @Test
+    public void testDefaultTrustStore() {
+        TrustStore trustStore = TrustStore.getDefault();
+        assertNotNull(trustStore);
+        assertSame(trustStore, TrustStore.getDefault());
+        assertEquals(1, trustStore.getTrustAnchors().size());
+        assertEquals("CN=ISRG Root X1,O=Internet Security Research Group,C=US",
+            trustStore.getTrustAnchors().iterator().next().getTrustedCert().getSubjectX500Principal().getName());
+        assertEquals(4, trustStore.getIntermediateCerts().size());
+        assertNotNull(trustStore.getCertStore());
+    }
+
+    @Test
+    public void testEmptyTrustStore() {
+        assertThrows(Exception.class, () -> new TrustStore.Builder().build());
+    }
+
+    @Test
+    public void testVerifyCertificateWithCustomTrustStore() {
+        try {
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            ZonedDateTime validTime = ZonedDateTime.of(2025, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+            TrustStore withIntermediate = new TrustStore.Builder()
+                .trustAnchor(CertificateUtils.loadCertificateFromString(Certificates.ISRGROOTX1))
+                .intermediateCert(CertificateUtils.loadCertificateFromString(Certificates.R11))
+                .build();
+            assertTrue(CertificateUtils.verifyCertificate(cert, "licensing-test.omnistrate.dev", validTime, Collections.emptyList(), withIntermediate));
+
+            // The path cannot be built without the R11 intermediate
+            TrustStore rootOnly = new TrustStore.Builder()
+                .trustAnchor(CertificateUtils.loadCertificateFromString(Certificates.ISRGROOTX1))
+                .build();
+            assertThrows(Exception.class, () -> CertificateUtils.verifyCertificate(cert, "licensing-test.omnistrate.dev", validTime, Collections.emptyList(), rootOnly));
+
+            // The intermediate can still be supplied by the caller
+            assertTrue(CertificateUtils.verifyCertificate(cert, "licensing-test.omnistrate.dev", validTime,
+                CertificateUtils.loadCertificateChainFromString(Certificates.R11), rootOnly));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+}
@@ -3,7 +3,18 @@ package com.omnistrate.licensing.common;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Base64;
 
 public class LicenseEnvelopeTest {
@@ -130,4 +141,276 @@ public class LicenseEnvelopeTest {
         assertEquals(le.getLicense(), decodedLe.getLicense());
         assertArrayEquals(le.getSignature(), decodedLe.getSignature());
     }
+
+    @Test
+    public void testParseUnknownFields() throws Exception {
+        String envelopeString = "{\"Extra\":{\"Nested\":[1,{\"A\":null}]},\"License\":{\"ID\":\"id-1\",\"Unknown\":[true],\"Version\":\"2\",\"OrganizationID\":\"orgID\"},\"Signature\":\"ZHVtbXk=\",\"Trailer\":1}";
+        LicenseEnvelope envelope = LicenseEnvelope.parse(envelopeString);
+        assertTrue(envelope.isValid());
+        assertEquals("id-1", envelope.getLicense().getId());
+        assertEquals("orgID", envelope.getLicense().getOrganizationID());
+        assertEquals(2, envelope.getLicense().getVersion());
+        assertArrayEquals("dummy".getBytes(), envelope.getSignature());
+    }
+
+    @Test
+    public void testParseNullFields() throws Exception {
+        LicenseEnvelope envelope = LicenseEnvelope.parse("{\"License\":null,\"Signature\":null}");
+        assertNotNull(envelope);
+        assertFalse(envelope.isValid());
+    }
+
+    @Test
+    public void testParseInvalidStructure() {
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse(""));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("[]"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":\"text\",\"Signature\":\"ZHVtbXk=\"}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{\"ID\":{}},\"Signature\":\"ZHVtbXk=\"}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{\"Version\":\"one\"},\"Signature\":\"ZHVtbXk=\"}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{},\"Signature\":42}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{},\"Signature\":\"not base64!\"}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{},\"Signature\":\"ZHVtbXk=\"}{}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{"));
+    }
+
+    @Test
+    public void testSignedLicenseBytes() throws Exception {
+        License license = new License("orgID","sku", "instanceID", "subscriptionID", "description", ZonedDateTime.now(), ZonedDateTime.now().plusDays(30));
+        LicenseEnvelope le = new LicenseEnvelope(license, "test-signature".getBytes());
+        assertNull(le.getSignedLicenseBytes());
+
+        LicenseEnvelope decodedLe = LicenseEnvelope.parseBytes(le.toBytes());
+        ByteBuffer signedBytes = decodedLe.getSignedLicenseBytes();
+        assertNotNull(signedBytes);
+        assertTrue(signedBytes.isReadOnly());
+        assertThrows(ReadOnlyBufferException.class, () -> signedBytes.put((byte) 0));
+        byte[] data = new byte[signedBytes.remaining()];
+        signedBytes.get(data);
+        assertArrayEquals(license.toBytes(), data);
+
+        // Every call returns an independent view
+        assertEquals(data.length, decodedLe.getSignedLicenseBytes().remaining());
+    }
+
+    @Test
+    public void testSignedLicenseBytesAreNotShared() throws Exception {
+        byte[] json = "{\"License\":{\"OrganizationID\":\"org-1\"},\"Signature\":\"ZHVtbXk=\"}".getBytes(StandardCharsets.UTF_8);
+        LicenseEnvelope envelope = LicenseEnvelope.parseBytes(json);
+        byte[] signed = toLicenseBytes(envelope);
+
+        // Changing the parsed array afterwards leaves the envelope as it was read
+        json[new String(json, StandardCharsets.UTF_8).indexOf("org-1") + 4] = '2';
+        assertEquals("org-1", envelope.getLicense().getOrganizationID());
+        assertArrayEquals(signed, toLicenseBytes(envelope));
+        assertFalse(envelope.toString().contains("org-2"));
+
+        byte[] binary = envelope.toBinary();
+        LicenseEnvelope fromBinary = LicenseEnvelope.parseBytes(binary);
+        Arrays.fill(binary, (byte) 0);
+        assertArrayEquals(signed, toLicenseBytes(fromBinary));
+    }
+
+    @Test
+    public void testSignedLicenseBytesKeepsOriginalFormatting() throws Exception {
+        String licenseJson = "{ \"ID\" : \"id-1\",\n  \"Description\":\"product \\\"a\\\" \\u00e9\", \"Version\": 1 }";
+        String envelopeString = "{\n  \"License\": " + licenseJson + ",\n  \"Signature\": \"ZHVtbXk=\"\n}";
+        LicenseEnvelope envelope = LicenseEnvelope.parse(envelopeString);
+        assertEquals("product \"a\" \u00e9", envelope.getLicense().getDescription());
+
+        ByteBuffer signedBytes = envelope.getSignedLicenseBytes();
+        byte[] data = new byte[signedBytes.remaining()];
+        signedBytes.get(data);
+        assertEquals(licenseJson, new String(data, StandardCharsets.UTF_8));
+
+        // Re-serializing a parsed envelope keeps the signed bytes
+        assertEquals(licenseJson, new String(toLicenseBytes(LicenseEnvelope.parse(envelope.toString())), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testParseDuplicateLicense() {
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{\"ID\":\"a\"},\"License\":{\"ID\":\"b\"},\"Signature\":\"ZHVtbXk=\"}"));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        License license = new License("orgID","sku", "instanceID", "subscriptionID", "description", ZonedDateTime.now(), ZonedDateTime.now().plusDays(30));
+        byte[] signature = new byte[256];
+        byte[] ocspResponse = new byte[200];
+        LicenseEnvelope le = new LicenseEnvelope(license, signature, ocspResponse);
+
+        byte[] binary = le.toBinary();
+        assertEquals(LicenseEnvelope.BINARY_FORMAT_VERSION, binary[0]);
+        LicenseEnvelope decodedLe = LicenseEnvelope.parseBytes(binary);
+        assertEquals(le.getLicense(), decodedLe.getLicense());
+        assertArrayEquals(signature, decodedLe.getSignature());
+        assertArrayEquals(ocspResponse, decodedLe.getOcspResponse());
+        assertArrayEquals(license.toBytes(), toLicenseBytes(decodedLe));
+
+        LicenseEnvelope fromBase64 = LicenseEnvelope.parseBase64(le.toBinaryBase64());
+        assertEquals(le.getLicense(), fromBase64.getLicense());
+        assertTrue(le.toBinaryBase64().length() < le.toBase64().length());
+
+        // Converting between the formats keeps the signed bytes as they were
+        String licenseJson = "{ \"ID\" : \"id-1\", \"Version\": 1 }";
+        LicenseEnvelope parsed = LicenseEnvelope.parse("{\"License\": " + licenseJson + ", \"Signature\": \"ZHVtbXk=\"}");
+        LicenseEnvelope converted = LicenseEnvelope.parseBytes(parsed.toBinary());
+        assertEquals(licenseJson, new String(toLicenseBytes(converted), StandardCharsets.UTF_8));
+        assertEquals(licenseJson, new String(toLicenseBytes(LicenseEnvelope.parse(converted.toString())), StandardCharsets.UTF_8));
+
+        // Absent fields are omitted
+        LicenseEnvelope empty = LicenseEnvelope.parseBytes(new byte[] {LicenseEnvelope.BINARY_FORMAT_VERSION});
+        assertFalse(empty.isValid());
+    }
+
+    @Test
+    public void testParseInvalidBinary() {
+        byte[] license = "{\"ID\":\"a\"}".getBytes(StandardCharsets.UTF_8);
+        // Unknown field
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 9, 1, 0}));
+        // Repeated field
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, 1, 0, 2, 1, 0}));
+        // Length past the end of the data
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, 5, 0}));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}));
+        // Missing or over-long length
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2}));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0}));
+        // Fifth length byte with bits past 32, which would wrap to an empty field
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10}));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08}));
+        // Non-minimal lengths, so every envelope has a single encoding
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, (byte) 0x80, 0}));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new byte[] {1, 2, (byte) 0x81, (byte) 0x80, 0, 0}));
+        // License field that is not exactly one JSON object
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(binaryField(1, "[]".getBytes(StandardCharsets.UTF_8))));
+        byte[] trailing = new byte[license.length + 2];
+        System.arraycopy(license, 0, trailing, 0, license.length);
+        trailing[license.length] = '{';
+        trailing[license.length + 1] = '}';
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(binaryField(1, trailing)));
+    }
+
+    @Test
+    public void testAlgorithmField() throws Exception {
+        License license = new License("orgID","sku", "instanceID", "subscriptionID", "description", ZonedDateTime.now(), ZonedDateTime.now().plusDays(30));
+        LicenseEnvelope le = new LicenseEnvelope(license, new byte[64], SignatureAlgorithm.EdDSA);
+        assertTrue(le.toString().contains("\"Algorithm\":\"EdDSA\""));
+        assertEquals(SignatureAlgorithm.EdDSA, LicenseEnvelope.parse(le.toString()).getAlgorithm());
+        assertEquals(SignatureAlgorithm.EdDSA, LicenseEnvelope.parseBytes(le.toBinary()).getAlgorithm());
+
+        // Envelopes without the field keep their previous encoding
+        LicenseEnvelope unnamed = new LicenseEnvelope(license, new byte[64]);
+        assertFalse(unnamed.toString().contains("Algorithm"));
+        assertNull(LicenseEnvelope.parse(unnamed.toString()).getAlgorithm());
+        assertNull(LicenseEnvelope.parse("{\"License\":{\"ID\":\"a\"},\"Signature\":\"ZHVtbXk=\",\"Algorithm\":null}").getAlgorithm());
+
+        // Unknown algorithms are rejected
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{\"ID\":\"a\"},\"Signature\":\"ZHVtbXk=\",\"Algorithm\":\"none\"}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parse("{\"License\":{\"ID\":\"a\"},\"Signature\":\"ZHVtbXk=\",\"Algorithm\":1}"));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(binaryField(4, "none".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    public void testParseBuffersAndStreams() throws Exception {
+        String licenseJson = "{ \"ID\" : \"id-1\", \"Version\": 1 }";
+        byte[] json = ("{\"License\": " + licenseJson + ", \"Signature\": \"ZHVtbXk=\"}").getBytes(StandardCharsets.UTF_8);
+
+        // Heap buffer over a slice of a larger array
+        byte[] padded = new byte[json.length + 8];
+        System.arraycopy(json, 0, padded, 4, json.length);
+        ByteBuffer heap = ByteBuffer.wrap(padded, 4, json.length).slice();
+        LicenseEnvelope fromHeap = LicenseEnvelope.parseBytes(heap);
+        assertEquals(licenseJson, new String(toLicenseBytes(fromHeap), StandardCharsets.UTF_8));
+        assertEquals(0, heap.position());
+
+        // A pooled buffer reused after parsing does not change the envelope
+        Arrays.fill(padded, (byte) ' ');
+        assertEquals(licenseJson, new String(toLicenseBytes(fromHeap), StandardCharsets.UTF_8));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+        direct.put(json).flip();
+        LicenseEnvelope fromDirect = LicenseEnvelope.parseBytes(direct);
+        assertEquals(licenseJson, new String(toLicenseBytes(fromDirect), StandardCharsets.UTF_8));
+        assertArrayEquals("dummy".getBytes(StandardCharsets.UTF_8), fromDirect.getSignature());
+        assertEquals(0, direct.position());
+
+        LicenseEnvelope fromStream = LicenseEnvelope.parseBytes(new ByteArrayInputStream(json));
+        assertEquals(licenseJson, new String(toLicenseBytes(fromStream), StandardCharsets.UTF_8));
+        LicenseEnvelope fromChannel = LicenseEnvelope.parseBytes(Channels.newChannel(new ByteArrayInputStream(json)));
+        assertEquals(licenseJson, new String(toLicenseBytes(fromChannel), StandardCharsets.UTF_8));
+
+        License license = new License("orgID","sku", "instanceID", "subscriptionID", "description", ZonedDateTime.now(), ZonedDateTime.now().plusDays(30));
+        LicenseEnvelope le = new LicenseEnvelope(license, new byte[256]);
+        LicenseEnvelope fromBase64Stream = LicenseEnvelope.parseBase64(new ByteArrayInputStream(le.toBinaryBase64().getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(license, fromBase64Stream.getLicense());
+        assertThrows(InvalidLicenseException.class,
+            () -> LicenseEnvelope.parseBase64(new ByteArrayInputStream("not base64!".getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    public void testParseMappedFile() throws Exception {
+        License license = new License("orgID","sku", "instanceID", "subscriptionID", "description", ZonedDateTime.now(), ZonedDateTime.now().plusDays(30));
+        LicenseEnvelope le = new LicenseEnvelope(license, new byte[256]);
+        Path file = Files.createTempFile("license", ".bin");
+        try {
+            Files.write(file, le.toBinary());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                LicenseEnvelope fromMapped = LicenseEnvelope.parseBytes(mapped);
+                assertEquals(license, fromMapped.getLicense());
+                assertArrayEquals(license.toBytes(), toLicenseBytes(fromMapped));
+
+                LicenseEnvelope fromChannel = LicenseEnvelope.parseBytes(channel);
+                assertEquals(license, fromChannel.getLicense());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParseStreamLimit() {
+        byte[] oversized = new byte[(1 << 20) + 1];
+        Arrays.fill(oversized, (byte) ' ');
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new ByteArrayInputStream(oversized)));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(Channels.newChannel(new ByteArrayInputStream(oversized))));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(ByteBuffer.allocateDirect(oversized.length)));
+        // Arrays and heap buffers are held to the same limit
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(oversized));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(ByteBuffer.wrap(oversized)));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void testParseStreamAtLimit() throws Exception {
+        // An envelope of exactly 1 MiB, padded with trailing whitespace, is accepted from every input
+        byte[] json = "{\"License\":{\"ID\":\"a\"},\"Signature\":\"ZHVtbXk=\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] atLimit = new byte[1 << 20];
+        Arrays.fill(atLimit, (byte) ' ');
+        System.arraycopy(json, 0, atLimit, 0, json.length);
+        assertEquals("a", LicenseEnvelope.parseBytes(new ByteArrayInputStream(atLimit)).getLicense().getId());
+        assertEquals("a", LicenseEnvelope.parseBytes(Channels.newChannel(new ByteArrayInputStream(atLimit))).getLicense().getId());
+        assertEquals("a", LicenseEnvelope.parseBytes(atLimit).getLicense().getId());
+
+        byte[] pastLimit = Arrays.copyOf(atLimit, atLimit.length + 1);
+        pastLimit[atLimit.length] = ' ';
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(new ByteArrayInputStream(pastLimit)));
+        assertThrows(InvalidLicenseException.class, () -> LicenseEnvelope.parseBytes(Channels.newChannel(new ByteArrayInputStream(pastLimit))));
+    }
+
+    private static byte[] binaryField(int tag, byte[] value) {
+        byte[] data = new byte[value.length + 3];
+        data[0] = LicenseEnvelope.BINARY_FORMAT_VERSION;
+        data[1] = (byte) tag;
+        data[2] = (byte) value.length;
+        System.arraycopy(value, 0, data, 3, value.length);
+        return data;
+    }
+
+    private static byte[] toLicenseBytes(LicenseEnvelope envelope) {
+        ByteBuffer signedBytes = envelope.getSignedLicenseBytes();
+        byte[] data = new byte[signedBytes.remaining()];
+        signedBytes.get(data);
+        return data;
+    }
 }
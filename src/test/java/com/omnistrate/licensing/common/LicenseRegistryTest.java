@@ -0,0 +1,161 @@
+package com.omnistrate.licensing.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LicenseRegistryTest {
+
+    private static License newLicense(String organizationID, String productPlanUniqueID, String instanceID, ZonedDateTime expirationTime) {
+        // Copies of the IDs, as they would come out of separately parsed envelopes
+        return new License(new String(organizationID), new String(productPlanUniqueID), new String(instanceID), "sub-id", "desc",
+            expirationTime.minusDays(30), expirationTime);
+    }
+
+    @Test
+    public void testRegisterAndGet() {
+        ZonedDateTime expirationTime = ZonedDateTime.now().plusDays(1);
+        LicenseRegistry registry = new LicenseRegistry();
+        License license = newLicense("org-1", "plan-a", "instance-1", expirationTime);
+
+        assertTrue(registry.register(license));
+        assertSame(license, registry.get("org-1", "plan-a", "instance-1"));
+        assertNull(registry.get("org-1", "plan-a", "instance-2"));
+        assertNull(registry.get("org-2", "plan-a", "instance-1"));
+        assertTrue(registry.isLicensed("org-1", "plan-a", "instance-1"));
+        assertFalse(registry.isLicensed("org-1", "plan-b", "instance-1"));
+        assertFalse(registry.isLicensed("org-1", "plan-a", "instance-1", expirationTime.plusSeconds(1).toInstant().toEpochMilli()));
+        assertEquals(1, registry.size());
+
+        assertSame(license, registry.remove("org-1", "plan-a", "instance-1"));
+        assertNull(registry.remove("org-1", "plan-a", "instance-1"));
+        assertEquals(0, registry.size());
+        assertTrue(registry.getByOrganization("org-1").isEmpty());
+    }
+
+    @Test
+    public void testReplaceOnlyWithNewerVersion() {
+        ZonedDateTime expirationTime = ZonedDateTime.now().plusDays(1);
+        LicenseRegistry registry = new LicenseRegistry();
+        License license = newLicense("org-1", "plan-a", "instance-1", expirationTime);
+        assertTrue(registry.register(license));
+
+        // Same version, e.g. the same license re-issued, keeps the registered one
+        License sameVersion = newLicense("org-1", "plan-a", "instance-1", expirationTime.plusDays(1));
+        assertFalse(registry.register(sameVersion));
+        assertSame(license, registry.get("org-1", "plan-a", "instance-1"));
+
+        License renewed = newLicense("org-1", "plan-a", "instance-1", expirationTime);
+        renewed.renew(expirationTime.plusDays(30));
+        assertEquals(2, renewed.getVersion());
+        assertTrue(registry.register(renewed));
+        assertSame(renewed, registry.get("org-1", "plan-a", "instance-1"));
+
+        // An older renewal arriving late does not roll the tenant back
+        assertFalse(registry.register(license));
+        assertSame(renewed, registry.get("org-1", "plan-a", "instance-1"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void testPrefixQueries() {
+        ZonedDateTime expirationTime = ZonedDateTime.now().plusDays(1);
+        LicenseRegistry registry = new LicenseRegistry();
+        registry.register(newLicense("org-1", "plan-a", "instance-1", expirationTime));
+        registry.register(newLicense("org-1", "plan-a", "instance-2", expirationTime));
+        registry.register(newLicense("org-1", "plan-b", "instance-3", expirationTime.minusDays(2)));
+        registry.register(newLicense("org-10", "plan-a", "instance-4", expirationTime));
+        registry.register(newLicense("org-2", "plan-a", "instance-5", expirationTime));
+
+        List<License> org1 = registry.getByOrganization("org-1");
+        assertEquals(3, org1.size());
+        for (License license : org1) {
+            assertEquals("org-1", license.getOrganizationID());
+        }
+        assertEquals(2, registry.getByOrganization("org-1", "plan-a").size());
+        assertEquals(1, registry.getByOrganization("org-10").size());
+        assertTrue(registry.getByOrganization("org").isEmpty());
+
+        long now = System.currentTimeMillis();
+        assertTrue(registry.isLicensed("org-1", "plan-a", now));
+        assertFalse(registry.isLicensed("org-1", "plan-b", now));
+        assertFalse(registry.isLicensed("org-3", "plan-a", now));
+
+        assertEquals(1, registry.removeExpired(now));
+        assertEquals(4, registry.size());
+        assertEquals(2, registry.getByOrganization("org-1").size());
+    }
+
+    @Test
+    public void testSharedClaims() {
+        ZonedDateTime expirationTime = ZonedDateTime.now().plusDays(1);
+        LicenseRegistry registry = new LicenseRegistry();
+        License first = newLicense("org-1", "plan-a", "instance-1", expirationTime);
+        License second = newLicense("org-1", "plan-a", "instance-2", expirationTime);
+        assertNotSame(first.getOrganizationID(), second.getOrganizationID());
+
+        registry.register(first);
+        registry.register(second);
+        assertSame(first.getOrganizationID(), second.getOrganizationID());
+        assertSame(first.getProductPlanUniqueID(), second.getProductPlanUniqueID());
+
+        License renewed = newLicense("org-1", "plan-a", "instance-1", expirationTime);
+        renewed.renew(expirationTime.plusDays(30));
+        registry.register(renewed);
+        assertSame(first.getInstanceID(), renewed.getInstanceID());
+        assertEquals(2, registry.sharedIdCount());
+
+        // Shared IDs are dropped with the last license referencing them
+        registry.register(newLicense("org-2", "plan-b", "instance-3", expirationTime.minusDays(2)));
+        assertEquals(4, registry.sharedIdCount());
+        assertEquals(1, registry.removeExpired(System.currentTimeMillis()));
+        assertEquals(2, registry.sharedIdCount());
+        registry.remove("org-1", "plan-a", "instance-1");
+        assertEquals(2, registry.sharedIdCount());
+        registry.remove("org-1", "plan-a", "instance-2");
+        assertEquals(0, registry.sharedIdCount());
+        assertNull(registry.remove("org-1", "plan-a", "instance-2"));
+        assertEquals(0, registry.sharedIdCount());
+    }
+
+    @Test
+    public void testConcurrentRenewals() throws Exception {
+        ZonedDateTime expirationTime = ZonedDateTime.now().plusDays(1);
+        LicenseRegistry registry = new LicenseRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int version = 1; version <= 50; version++) {
+                        for (int i = 0; i < 20; i++) {
+                            License license = newLicense("org-" + (i % 4), "plan-a", "instance-" + i, expirationTime);
+                            for (int v = 1; v < version; v++) {
+                                license.renew(expirationTime);
+                            }
+                            registry.register(license);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20, registry.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(50, registry.get("org-" + (i % 4), "plan-a", "instance-" + i).getVersion());
+        }
+        assertEquals(5, registry.getByOrganization("org-0").size());
+    }
+}
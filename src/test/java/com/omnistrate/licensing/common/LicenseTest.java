@@ -1,8 +1,12 @@
 package com.omnistrate.licensing.common;
 
 import org.junit.jupiter.api.Test;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -184,4 +188,58 @@ public class LicenseTest {
             // Expected
         }
     }
+
+    @Test
+    public void testIsExpiredAtMillis() {
+        ZonedDateTime expirationTime = ZonedDateTime.parse("2022-01-01T00:00:00.500Z");
+        License license = new License("orgID", "SKU", "instance-id", "sub-id", "desc", expirationTime.minusDays(1), expirationTime);
+        long expirationMillis = expirationTime.toInstant().toEpochMilli();
+
+        assertEquals(expirationMillis, license.getExpirationTimeMillis());
+        assertFalse(license.isExpiredAt(expirationMillis - 1));
+        assertFalse(license.isExpiredAt(expirationMillis));
+        assertTrue(license.isExpiredAt(expirationMillis + 1));
+        assertFalse(license.isExpiredAt(expirationTime));
+        assertTrue(license.isExpiredAt(expirationTime.plusNanos(1)));
+
+        assertFalse(license.isExpiredAt(Clock.fixed(Instant.ofEpochMilli(expirationMillis), ZoneOffset.UTC)));
+        assertTrue(license.isExpiredAt(Clock.fixed(Instant.ofEpochMilli(expirationMillis + 1), ZoneOffset.UTC)));
+    }
+
+    @Test
+    public void testRenewResetsParsedTimes() {
+        License license = new License("orgID", "SKU", "instance-id", "sub-id", "desc", ZonedDateTime.now().minusDays(2), ZonedDateTime.now().minusDays(1));
+        assertTrue(license.isExpired());
+
+        ZonedDateTime newExpirationTime = ZonedDateTime.now().plusDays(1);
+        license.renew(newExpirationTime);
+        assertFalse(license.isExpired());
+        assertEquals(newExpirationTime.toInstant().toEpochMilli(), license.getExpirationTimeMillis());
+    }
+
+    @Test
+    public void testInvalidTimes() throws Exception {
+        License license = License.parse("{\"ID\":\"1234\",\"CreationTime\":\"2021-01-01T00:00:00Z\",\"ExpirationTime\":\"not a date\",\"Version\":1}");
+        assertTrue(license.isExpired());
+        assertTrue(license.isExpiredAt(0L));
+        assertTrue(license.isExpiredAt(ZonedDateTime.parse("2000-01-01T00:00:00Z")));
+        assertThrows(InvalidLicenseException.class, () -> license.isValid("", "", ""));
+        assertThrows(DateTimeParseException.class, license::getExpirationTime);
+        assertThrows(DateTimeParseException.class, license::getExpirationTimeMillis);
+        assertNotNull(license.getCreationTime());
+    }
+
+    @Test
+    public void testCheck() {
+        License license = new License("orgID", "SKU", "instance-id", "sub-id", "desc", ZonedDateTime.now(), ZonedDateTime.now().plusDays(1));
+        assertTrue(license.check("orgID", "SKU", "instance-id").isValid());
+        assertTrue(license.check("", "", "").isValid());
+        assertEquals(ValidationResult.Reason.ORGANIZATION_MISMATCH, license.check("other", "SKU", "instance-id").getReason());
+        assertEquals(ValidationResult.Reason.PRODUCT_PLAN_MISMATCH, license.check("orgID", "other", "instance-id").getReason());
+        assertEquals(ValidationResult.Reason.INSTANCE_MISMATCH, license.check("orgID", "SKU", "other").getReason());
+        assertEquals(ValidationResult.Reason.MISSING_REQUIRED_FIELDS, new License().check("", "", "").getReason());
+
+        InvalidLicenseException e = assertThrows(InvalidLicenseException.class, () -> license.isValid("orgID", "other", "instance-id"));
+        assertEquals("Invalid product plan unique id expected SKU got other", e.getReason());
+    }
 }
@@ -0,0 +1,104 @@
+package com.omnistrate.licensing.validation;
+
+import com.omnistrate.licensing.certificate.CertificateUtils;
+import com.omnistrate.licensing.certificate.Certificates;
+import com.omnistrate.licensing.certificate.Fingerprints;
+import com.omnistrate.licensing.certificate.TrustStore;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.PKIXCertPathBuilderResult;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CertificateValidationCacheTest {
+
+    private static final String TEST_CERTIFICATE = "-----BEGIN CERTIFICATE-----\n" +
+        "MIIFCjCCA/KgAwIBAgISBIalD5cMH3mevZGYjxxIAFOFMA0GCSqGSIb3DQEBCwUA\n" +
+        "MDMxCzAJBgNVBAYTAlVTMRYwFAYDVQQKEw1MZXQncyBFbmNyeXB0MQwwCgYDVQQD\n" +
+        "EwNSMTEwHhcNMjUwMjExMTQxMDM5WhcNMjUwNTEyMTQxMDM4WjAoMSYwJAYDVQQD\n" +
+        "Ex1saWNlbnNpbmctdGVzdC5vbW5pc3RyYXRlLmRldjCCASIwDQYJKoZIhvcNAQEB\n" +
+        "BQADggEPADCCAQoCggEBANrjkfEo81CuqyTdinRso3PtIcvXj9KRIZ/JXG+T1wHQ\n" +
+        "/qWEg0bDSq1hsMy+oRhgD4iV0UJZ65iK1RLWvapH9lDp6+VSPjlPLCnk6BTpwDlT\n" +
+        "A86em85qD3IjPf1iI/+7FClC2byavFqr/G2zpEvhELb+On/tHgl8oXe6nqSz/kzt\n" +
+        "FiPmEh9IyJ4KzARvyEODemfHNRlezfUKOX6YcGfVOOlngsIhtMYfOHv8QxkQ63wX\n" +
+        "CM9DiCo7+V0nOTxyC8c3Nakem44saHqe7wLYuXKXm9SMk+feePTIiBmjbQJLz8uO\n" +
+        "lwurRuBM2Hsg9w8OP3FrkKIK3XPm11edmeHwQZOS6h8CAwEAAaOCAiEwggIdMA4G\n" +
+        "A1UdDwEB/wQEAwIFoDAdBgNVHSUEFjAUBggrBgEFBQcDAQYIKwYBBQUHAwIwDAYD\n" +
+        "VR0TAQH/BAIwADAdBgNVHQ4EFgQUOhVq75FYA2NjKPvSkU/tz6VzTukwHwYDVR0j\n" +
+        "BBgwFoAUxc9GpOr0w8B6bJXELbBeki8m47kwVwYIKwYBBQUHAQEESzBJMCIGCCsG\n" +
+        "AQUFBzABhhZodHRwOi8vcjExLm8ubGVuY3Iub3JnMCMGCCsGAQUFBzAChhdodHRw\n" +
+        "Oi8vcjExLmkubGVuY3Iub3JnLzAoBgNVHREEITAfgh1saWNlbnNpbmctdGVzdC5v\n" +
+        "bW5pc3RyYXRlLmRldjATBgNVHSAEDDAKMAgGBmeBDAECATCCAQQGCisGAQQB1nkC\n" +
+        "BAIEgfUEgfIA8AB1AMz7D2qFcQll/pWbU87psnwi6YVcDZeNtql+VMD+TA2wAAAB\n" +
+        "lPWOlQ0AAAQDAEYwRAIgY4ITX6sdDjREvaXIoitgO6EKP2pSSy1noQMJwEnaRnAC\n" +
+        "ICkxKoaxpBUChDK0l2olkohMy4BLRBhrZ4aoNswWtbZ0AHcAzxFW7tUufK/zh1vZ\n" +
+        "aS6b6RpxZ0qwF+ysAdJbd87MOwgAAAGU9Y6VMgAABAMASDBGAiEAiSPhxVJpmcA/\n" +
+        "WLwi+Av87bPwjpY0oEQtHJNNf8blmqMCIQDrbJue/LOb6HfTni/2A74sCU8+V+bO\n" +
+        "IdTCbUjAcZG5kzANBgkqhkiG9w0BAQsFAAOCAQEAQ+GRLVEX6+3ZrgK49mOc23Ne\n" +
+        "UNTg82Rwh9AerKHBnwNLS0sR6M93GxiYrWW0JH71YwZuLQlHwFYjq8c4zY/xqZs4\n" +
+        "/DrPz/cwlSuw2jdtUo3Tt9Mh/xTVuCWsjJVHm42VqRulGYtS5IA2VRjDikCay/1l\n" +
+        "qAM2hKAUy8pMQ9+SechHZYWi8YVcp+RgnKB3qtbqFDbFMMbEEDao7Y1DFh4TwXdh\n" +
+        "k/akWnY4eLILCSfZ+9zkt4GL2J7wU5k1P4+p6lxRyG8WF/2klTP3MreeGv4NXFNu\n" +
+        "1euwTONgE5mpWBAZ4GxR3UFQ37Q9kENFzsks4drS2j7JWZqUMR6OoICtrzqJHw==\n" +
+        "-----END CERTIFICATE-----";
+
+    private static final String TEST_DOMAIN = "licensing-test.omnistrate.dev";
+
+    @Test
+    public void testValidatorUsesCache() {
+        try {
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            List<X509Certificate> intermediateCerts = CertificateUtils.loadCertificateChainFromString(Certificates.R11);
+            ZonedDateTime validTime = ZonedDateTime.of(2025, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+            CertificateValidationCache cache = new CertificateValidationCache(Duration.ofMinutes(5), 16);
+            Validator validator = new Validator(cert, intermediateCerts, TrustStore.getDefault(), cache);
+
+            assertTrue(validator.validateCertificate(TEST_DOMAIN, validTime));
+            assertEquals(1, cache.size());
+            assertTrue(validator.validateCertificate(TEST_DOMAIN, validTime.plusDays(1)));
+            assertEquals(1, cache.size());
+
+            // Cached results are never reused outside of the certificate validity window or for another domain
+            ZonedDateTime expiredTime = ZonedDateTime.ofInstant(cert.getNotAfter().toInstant(), ZoneOffset.UTC).plusHours(1);
+            assertThrows(Exception.class, () -> validator.validateCertificate(TEST_DOMAIN, expiredTime));
+            assertThrows(Exception.class, () -> validator.validateCertificate("licensing.omnistrate.dev.invalid", validTime));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEntryLifetime() {
+        try {
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            List<X509Certificate> intermediateCerts = CertificateUtils.loadCertificateChainFromString(Certificates.R11);
+            ZonedDateTime validTime = ZonedDateTime.of(2025, 5, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+            PKIXCertPathBuilderResult pathResult = CertificateUtils.verifyCertificatePath(cert, TEST_DOMAIN, validTime, intermediateCerts, TrustStore.getDefault());
+            byte[] fingerprint = Fingerprints.sha256(cert, intermediateCerts);
+            long validTimeMillis = validTime.toInstant().toEpochMilli();
+
+            CertificateValidationCache cache = new CertificateValidationCache(Duration.ofMinutes(5), 16);
+            assertFalse(cache.isValid(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), validTimeMillis));
+            cache.put(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), pathResult);
+            assertTrue(cache.isValid(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), validTimeMillis));
+            assertTrue(cache.isValid(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), cert.getNotAfter().getTime()));
+            assertFalse(cache.isValid(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), cert.getNotAfter().getTime() + 1));
+            assertFalse(cache.isValid(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), cert.getNotBefore().getTime() - 1));
+
+            CertificateValidationCache expiring = new CertificateValidationCache(Duration.ofNanos(1), 16);
+            expiring.put(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), pathResult);
+            Thread.sleep(1);
+            assertFalse(expiring.isValid(fingerprint, TEST_DOMAIN, TrustStore.getDefault(), validTimeMillis));
+            assertEquals(0, expiring.size());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.omnistrate.licensing.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LicenseFileWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    @TempDir
+    Path tempDir;
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    @Test
+    public void testContentChange() throws Exception {
+        Path certPath = Files.write(tempDir.resolve("license.crt"), "cert-1".getBytes());
+        Path licensePath = Files.write(tempDir.resolve("license.lic"), "license-1".getBytes());
+        AtomicInteger changes = new AtomicInteger();
+
+        try (LicenseFileWatcher watcher = new LicenseFileWatcher(Arrays.asList(certPath, licensePath), changes::incrementAndGet)) {
+            Files.write(licensePath, "license-2".getBytes());
+            awaitCount(changes, 1);
+
+            // Rewriting the same content or touching another file does not trigger a reload
+            Files.write(licensePath, "license-2".getBytes());
+            Files.write(tempDir.resolve("unrelated"), "data".getBytes());
+            Thread.sleep(500);
+            assertEquals(1, changes.get());
+
+            Files.write(certPath, "cert-2".getBytes());
+            awaitCount(changes, 2);
+        }
+    }
+
+    @Test
+    public void testSymlinkSwap() throws Exception {
+        // Kubernetes-style volume: license.lic -> ..data/license.lic, ..data -> ..v1
+        Files.createDirectory(tempDir.resolve("..v1"));
+        Files.write(tempDir.resolve("..v1").resolve("license.lic"), "license-1".getBytes());
+        Files.createDirectory(tempDir.resolve("..v2"));
+        Files.write(tempDir.resolve("..v2").resolve("license.lic"), "license-2".getBytes());
+        Files.createSymbolicLink(tempDir.resolve("..data"), Paths.get("..v1"));
+        Path licensePath = Files.createSymbolicLink(tempDir.resolve("license.lic"), Paths.get("..data", "license.lic"));
+        AtomicInteger changes = new AtomicInteger();
+
+        try (LicenseFileWatcher watcher = new LicenseFileWatcher(Collections.singletonList(licensePath), changes::incrementAndGet)) {
+            Path tmpLink = Files.createSymbolicLink(tempDir.resolve("..data_tmp"), Paths.get("..v2"));
+            Files.move(tmpLink, tempDir.resolve("..data"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            awaitCount(changes, 1);
+            assertEquals("license-2", new String(Files.readAllBytes(licensePath)));
+        }
+    }
+}
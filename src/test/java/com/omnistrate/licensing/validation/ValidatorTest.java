@@ -6,13 +6,24 @@ import com.omnistrate.licensing.common.InvalidLicenseException;
 import com.omnistrate.licensing.common.InvalidSignatureException;
 import com.omnistrate.licensing.common.License;
 import com.omnistrate.licensing.common.LicenseEnvelope;
+import com.omnistrate.licensing.common.ValidationResult;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -169,6 +180,70 @@ public class ValidatorTest {
         }
     }
 
+    @Test
+    public void testValidateLicenseBinary() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            LicenseEnvelope envelope = new LicenseEnvelope(license, CertificateUtils.sign(privateKey, license.toBytes()));
+
+            // The binary format is detected on parse, for raw bytes and for base64
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+            assertTrue(validator.validateLicenseBytes(envelope.toBinary(), "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.validateLicenseBase64(envelope.toBinaryBase64(), "orgID", "SKU", "instance-1", now));
+            assertThrows(InvalidLicenseException.class, () -> validator.validateLicenseBase64(envelope.toBinaryBase64(), "INVALID", "SKU", "instance-1", now));
+
+            // A JSON envelope converted to binary keeps verifying with the original signature
+            LicenseEnvelope parsed = LicenseEnvelope.parseBytes(envelope.toBytes());
+            assertTrue(validator.validateLicenseBytes(parsed.toBinary(), "orgID", "SKU", "instance-1", now));
+
+            byte[] tampered = envelope.toBinary();
+            tampered[10] ^= 1;
+            assertFalse(validator.checkLicenseBytes(tampered, "orgID", "SKU", "instance-1", now).isValid());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidateLicenseBuffersAndStreams() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            LicenseEnvelope envelope = new LicenseEnvelope(license, CertificateUtils.sign(privateKey, license.toBytes()));
+            byte[] json = envelope.toBytes();
+
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+            ByteBuffer direct = ByteBuffer.allocateDirect(json.length);
+            direct.put(json).flip();
+            assertTrue(validator.validateLicenseBytes(direct, "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.validateLicenseBytes(ByteBuffer.wrap(envelope.toBinary()), "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.validateLicenseBytes(new ByteArrayInputStream(json), "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.validateLicenseBytes(Channels.newChannel(new ByteArrayInputStream(json)), "orgID", "SKU", "instance-1", now));
+            byte[] base64 = envelope.toBase64().getBytes(StandardCharsets.US_ASCII);
+            assertTrue(validator.validateLicenseBase64(new ByteArrayInputStream(base64), "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.checkLicenseBase64(new ByteArrayInputStream(base64), "orgID", "SKU", "instance-1", now).isValid());
+            assertTrue(validator.checkLicenseBytes(direct, "orgID", "SKU", "instance-1", now).isValid());
+
+            ValidationResult malformed = validator.checkLicenseBytes(new ByteArrayInputStream(new byte[] {'{'}), "orgID", "SKU", "instance-1", now);
+            assertEquals(ValidationResult.Reason.MALFORMED_ENVELOPE, malformed.getReason());
+            malformed = validator.checkLicenseBase64(new ByteArrayInputStream("%%%%".getBytes(StandardCharsets.US_ASCII)), "orgID", "SKU", "instance-1", now);
+            assertEquals(ValidationResult.Reason.MALFORMED_ENVELOPE, malformed.getReason());
+
+            byte[] tampered = envelope.toBinary();
+            tampered[10] ^= 1;
+            assertFalse(validator.checkLicenseBytes(ByteBuffer.wrap(tampered), "orgID", "SKU", "instance-1", now).isValid());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
     @Test
     public void testValidateLicenseChainBase64() {
         try {
@@ -215,4 +290,161 @@ public class ValidatorTest {
             fail("Exception should not be thrown: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testValidateLicenseOriginalBytes() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            // Escaped characters are not reproduced by License.toBytes(), only the original bytes verify
+            String licenseJson = "{\"ID\":\"id-1\",\"CreationTime\":\"" + now.format(DateTimeFormatter.ISO_ZONED_DATE_TIME)
+                + "\",\"ExpirationTime\":\"" + now.plusDays(2).format(DateTimeFormatter.ISO_ZONED_DATE_TIME)
+                + "\",\"Description\":\"product \\\"a\\\" \\u003cb\\u003e\",\"InstanceID\":\"instance-1\",\"SubscriptionID\":\"subs-1\""
+                + ",\"ProductPlanUniqueID\":\"SKU\",\"OrganizationID\":\"orgID\",\"Version\":1}";
+            byte[] signature = CertificateUtils.sign(privateKey, licenseJson.getBytes(StandardCharsets.UTF_8));
+            String envelopeJson = "{\"License\":" + licenseJson + ",\"Signature\":\"" + Base64.getEncoder().encodeToString(signature) + "\"}";
+
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+            assertTrue(validator.validateLicenseString(envelopeJson, "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.validateLicenseBase64(Base64.getEncoder().encodeToString(envelopeJson.getBytes(StandardCharsets.UTF_8)), "orgID", "SKU", "instance-1", now));
+
+            // Any change to the signed bytes is rejected
+            String tampered = envelopeJson.replace("product", "produce");
+            assertThrows(InvalidLicenseException.class, () -> validator.validateLicenseString(tampered, "orgID", "SKU", "instance-1", now));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidateLicenseReformattedEnvelope() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            byte[] signature = CertificateUtils.sign(privateKey, license.toBytes());
+
+            // Signed over the compact form, shipped pretty-printed
+            String envelopeJson = "{\n  \"License\": " + license.toString().replace(",", ",\n    ") + ",\n  \"Signature\": \""
+                + Base64.getEncoder().encodeToString(signature) + "\"\n}";
+
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+            assertThrows(InvalidLicenseException.class, () -> validator.validateLicenseString(envelopeJson, "orgID", "SKU", "instance-1", now));
+            validator.setVerifyReserializedLicense(true);
+            assertTrue(validator.validateLicenseString(envelopeJson, "orgID", "SKU", "instance-1", now));
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCheckLicense() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            byte[] signature = CertificateUtils.sign(privateKey, license.toBytes());
+            LicenseEnvelope envelope = new LicenseEnvelope(license, signature);
+            byte[] envelopeBytes = envelope.toBytes();
+
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+            assertSame(ValidationResult.valid(), validator.checkLicense(envelope, "orgID", "SKU", "instance-1", now));
+            assertTrue(validator.checkLicenseBytes(envelopeBytes, "orgID", "SKU", "instance-1", now).isValid());
+            assertTrue(validator.checkLicenseString(new String(envelopeBytes, StandardCharsets.UTF_8), "", "", "", now).isValid());
+            assertTrue(validator.checkLicenseBase64(Base64.getEncoder().encodeToString(envelopeBytes), "orgID", "", "", now).isValid());
+
+            assertEquals(ValidationResult.Reason.ORGANIZATION_MISMATCH, validator.checkLicense(envelope, "INVALID", "SKU", "instance-1", now).getReason());
+            assertEquals(ValidationResult.Reason.PRODUCT_PLAN_MISMATCH, validator.checkLicense(envelope, "orgID", "INVALID", "instance-1", now).getReason());
+            assertEquals(ValidationResult.Reason.INSTANCE_MISMATCH, validator.checkLicense(envelope, "orgID", "SKU", "INVALID", now).getReason());
+            assertEquals(ValidationResult.Reason.EXPIRED, validator.checkLicense(envelope, "orgID", "SKU", "instance-1", now.plusDays(3)).getReason());
+            assertEquals(ValidationResult.Reason.MISSING_ENVELOPE, validator.checkLicense(null, "orgID", "SKU", "instance-1", now).getReason());
+            assertEquals(ValidationResult.Reason.INVALID_ENVELOPE, validator.checkLicense(new LicenseEnvelope(license, new byte[0]), "orgID", "SKU", "instance-1", now).getReason());
+            assertEquals(ValidationResult.Reason.MISSING_CERTIFICATE, new Validator(null, java.util.Collections.emptyList()).checkLicense(envelope, "orgID", "SKU", "instance-1", now).getReason());
+
+            // Failures detected by the validation are shared instances without a cause
+            ValidationResult mismatch = validator.checkLicense(envelope, "INVALID", "SKU", "instance-1", now);
+            assertSame(mismatch, validator.checkLicense(envelope, "OTHER", "SKU", "instance-1", now));
+            assertNull(mismatch.getCause());
+
+            byte[] invalidSignature = signature.clone();
+            invalidSignature[0] ^= 1;
+            assertEquals(ValidationResult.Reason.SIGNATURE_MISMATCH, validator.checkLicense(new LicenseEnvelope(license, invalidSignature), "orgID", "SKU", "instance-1", now).getReason());
+
+            ValidationResult malformed = validator.checkLicenseBytes("{\"License\":".getBytes(StandardCharsets.UTF_8), "orgID", "SKU", "instance-1", now);
+            assertEquals(ValidationResult.Reason.MALFORMED_ENVELOPE, malformed.getReason());
+            assertInstanceOf(InvalidLicenseException.class, malformed.getCause());
+            assertEquals(ValidationResult.Reason.MALFORMED_ENVELOPE, validator.checkLicenseBase64("not base64!", "orgID", "SKU", "instance-1", now).getReason());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testValidateLicenseFailureMessages() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            License license = new License("orgID", "SKU", "instance-1", "subs-1", "product a", now, now.plusDays(2));
+            LicenseEnvelope envelope = new LicenseEnvelope(license, CertificateUtils.sign(privateKey, license.toBytes()));
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+
+            InvalidLicenseException e = assertThrows(InvalidLicenseException.class, () -> validator.validateLicense(envelope, "INVALID", "SKU", "instance-1", now));
+            assertEquals("Invalid organization ID expected orgID got INVALID", e.getReason());
+            e = assertThrows(InvalidLicenseException.class, () -> validator.validateLicense(envelope, "orgID", "SKU", "instance-1", now.plusDays(3)));
+            assertEquals("license is expired", e.getReason());
+            e = assertThrows(InvalidLicenseException.class, () -> validator.validateLicense(null, "orgID", "SKU", "instance-1", now));
+            assertEquals("envelope is required", e.getReason());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCheckLicenses() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            X509Certificate cert = CertificateUtils.loadCertificateFromString(TEST_CERTIFICATE);
+            PrivateKey privateKey = CertificateUtils.loadPrivateKeyFromString(TEST_PRIVATE_KEY);
+
+            List<LicenseCheck> checks = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                License license = new License("org-" + (i % 10), "SKU", "instance-" + i, "subs-1", "product a", now, now.plusDays(2));
+                byte[] envelopeBytes = new LicenseEnvelope(license, CertificateUtils.sign(privateKey, license.toBytes())).toBytes();
+                // Every third item expects another organization
+                String organizationID = i % 3 == 0 ? "other" : "org-" + (i % 10);
+                checks.add(new LicenseCheck(envelopeBytes, organizationID, "SKU", "instance-" + i));
+            }
+            // Duplicates of earlier items and a malformed envelope
+            checks.add(checks.get(1));
+            checks.add(new LicenseCheck(checks.get(1).getEnvelopeBytes().clone(), "org-1", "SKU", "instance-1"));
+            checks.add(new LicenseCheck("{".getBytes(StandardCharsets.UTF_8), "org-1", "SKU", "instance-1"));
+
+            Validator validator = new Validator(cert, java.util.Collections.emptyList());
+            for (List<ValidationResult> results : Arrays.asList(validator.checkLicenses(checks, now), validator.checkLicenses(checks, now, executor))) {
+                assertEquals(checks.size(), results.size());
+                for (int i = 0; i < 100; i++) {
+                    ValidationResult.Reason expected = i % 3 == 0 ? ValidationResult.Reason.ORGANIZATION_MISMATCH : ValidationResult.Reason.VALID;
+                    assertEquals(expected, results.get(i).getReason(), "item " + i);
+                }
+                assertSame(results.get(1), results.get(100));
+                assertSame(results.get(1), results.get(101));
+                assertEquals(ValidationResult.Reason.MALFORMED_ENVELOPE, results.get(102).getReason());
+            }
+
+            assertTrue(validator.checkLicenses(java.util.Collections.emptyList(), now).isEmpty());
+        } catch (Exception e) {
+            fail("Exception should not be thrown: " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package com.omnistrate.licensing.certificate;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PooledEngineCacheTest {
+
+    @Test
+    public void testEngineCacheIsPooled() {
+        assertEquals("PooledEngineCache", Fingerprints.SHA256.getClass().getSimpleName());
+        assertEquals("PooledEngineCache", CertificateUtils.VERIFY_ENGINES.getClass().getSimpleName());
+    }
+
+    @Test
+    public void testVirtualThreadsShareEngines() throws Exception {
+        EngineCache<MessageDigest> cache = EngineCache.create(() -> MessageDigest.getInstance("SHA-256"));
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(new byte[] {1, 2, 3});
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(executor.submit(() -> {
+                    MessageDigest digest = cache.acquire();
+                    try {
+                        digest.reset();
+                        return digest.digest(new byte[] {1, 2, 3});
+                    } finally {
+                        cache.release(digest);
+                    }
+                }));
+            }
+            for (Future<byte[]> future : futures) {
+                assertArrayEquals(expected, future.get());
+            }
+
+            // An engine released by one virtual thread is handed to the next one
+            MessageDigest released = executor.submit(() -> {
+                MessageDigest digest = cache.acquire();
+                cache.release(digest);
+                return digest;
+            }).get();
+            assertSame(released, executor.submit(() -> {
+                MessageDigest digest = cache.acquire();
+                cache.release(digest);
+                return digest;
+            }).get());
+        }
+    }
+
+    @Test
+    public void testPlatformThreadsKeepTheirEngine() throws Exception {
+        EngineCache<MessageDigest> cache = EngineCache.create(() -> MessageDigest.getInstance("SHA-256"));
+        MessageDigest digest = cache.acquire();
+        cache.release(digest);
+        assertSame(digest, cache.acquire());
+    }
+}
@@ -0,0 +1,30 @@
+package com.omnistrate.licensing.validation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualValidationThreadsTest {
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        Thread thread = ValidationThreads.daemonThreadFactory("omnistrate-test").newThread(() -> { });
+        assertTrue(thread.isVirtual());
+        assertTrue(thread.isDaemon());
+        assertEquals("omnistrate-test-1", thread.getName());
+
+        CompletableFuture<Boolean> batchThread = new CompletableFuture<>();
+        ValidationThreads.batchExecutor().execute(() -> batchThread.complete(Thread.currentThread().isVirtual()));
+        assertTrue(batchThread.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncValidatorOnVirtualThreads() throws Exception {
+        try (AsyncValidator validator = new AsyncValidator.Builder().threads(2).build()) {
+            assertTrue(validator.submit(() -> Thread.currentThread().isVirtual()).get(10, TimeUnit.SECONDS));
+        }
+    }
+}